@@ -47,6 +47,9 @@ dependencies {
     compileOnly(libs.args4j)
     testImplementation(libs.args4j)
 
+    testImplementation(projects.koverOfflineRuntime)
+    testImplementation(libs.intellij.offline)
+
     testImplementation(kotlin("test"))
 }
 
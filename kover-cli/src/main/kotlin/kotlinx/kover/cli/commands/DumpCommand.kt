@@ -0,0 +1,177 @@
+/*
+ * Copyright 2000-2024 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kotlinx.kover.cli.commands
+
+import org.kohsuke.args4j.Option
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.io.PrintWriter
+import java.net.InetSocketAddress
+import java.net.Socket
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+
+
+internal class DumpCommand : Command {
+    @Option(
+        name = "--address",
+        usage = "address of the coverage endpoint of the running process in the format <host>:<port> or <port> for localhost",
+        metaVar = "<address>",
+        required = true
+    )
+    private var address: String? = null
+
+    @Option(
+        name = "--token-file",
+        usage = "file with the access token of the coverage endpoint",
+        metaVar = "<token-path>",
+        required = true
+    )
+    private var tokenFile: File? = null
+
+    @Option(
+        name = "--target",
+        usage = "binary report file to save the coverage to",
+        metaVar = "<binary-report-path>"
+    )
+    private var targetReport: File? = null
+
+    @Option(
+        name = "--reset",
+        usage = "reset the coverage in the running process, if --target is specified, the report with the coverage since the previous reset is saved before the reset in the same step"
+    )
+    private var reset = false
+
+    override val name: String = "dump"
+
+    override val description: String = "Get binary report from running process instrumented offline"
+
+
+    override fun call(output: PrintWriter, errorWriter: PrintWriter): Int {
+        val target = targetReport
+        if (target == null && !reset) {
+            errorWriter.println("At least one of --target or --reset must be specified")
+            return -1
+        }
+
+        val socketAddress = parseAddress(address!!)
+        if (socketAddress == null) {
+            errorWriter.println("Invalid address '$address', expected <host>:<port> or <port>")
+            return -1
+        }
+
+        val token = try {
+            tokenFile!!.readText(Charsets.US_ASCII).trim()
+        } catch (e: IOException) {
+            errorWriter.println("Reading of access token file '$tokenFile' failed: " + e.message)
+            return -1
+        }
+
+        val command = when {
+            target == null -> "reset"
+            reset -> "snapshot"
+            else -> "dump"
+        }
+
+        try {
+            Socket().use { socket ->
+                socket.connect(socketAddress, CONNECT_TIMEOUT_MILLIS)
+                // a hung endpoint must not hang the command
+                socket.soTimeout = READ_TIMEOUT_MILLIS
+                socket.getOutputStream().apply {
+                    write("$token $command\n".toByteArray(Charsets.US_ASCII))
+                    flush()
+                }
+
+                val input = socket.getInputStream().buffered()
+                val status = input.readStatusLine()
+                if (status != "OK" && !status.startsWith("OK ")) {
+                    errorWriter.println("Coverage endpoint returned an error: " + status.removePrefix("ERROR").trim())
+                    return -1
+                }
+
+                if (target != null) {
+                    val length = status.removePrefix("OK").trim().toLongOrNull()
+                        ?: throw IOException("Coverage endpoint did not return the length of the report")
+                    input.saveReport(target, length)
+                }
+            }
+        } catch (e: Exception) {
+            errorWriter.println("Getting coverage failed: " + e.message)
+            return -1
+        }
+
+        return 0
+    }
+
+    private fun parseAddress(address: String): InetSocketAddress? {
+        val separatorIndex = address.lastIndexOf(':')
+        val host = if (separatorIndex < 0) "localhost" else address.substring(0, separatorIndex)
+        val port = address.substring(separatorIndex + 1).toIntOrNull() ?: return null
+        if (port !in 1..65535) return null
+        return InetSocketAddress(host, port)
+    }
+
+    /**
+     * Read exactly [length] bytes of the report and save them to [target].
+     *
+     * The report is written to a temporary file first, so the previous content of [target] is kept if the connection is broken.
+     */
+    private fun InputStream.saveReport(target: File, length: Long) {
+        val directory = target.absoluteFile.parentFile
+        directory.mkdirs()
+        val tempFile = File.createTempFile("." + target.name + ".", ".tmp", directory)
+        try {
+            tempFile.outputStream().use { output ->
+                val buffer = ByteArray(8192)
+                var remaining = length
+                while (remaining > 0) {
+                    val read = read(buffer, 0, minOf(buffer.size.toLong(), remaining).toInt())
+                    if (read < 0) throw IOException("Connection was closed by the coverage endpoint, ${length - remaining} of $length bytes of the report were received")
+                    output.write(buffer, 0, read)
+                    remaining -= read
+                }
+            }
+            try {
+                Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+            } catch (e: AtomicMoveNotSupportedException) {
+                Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+            }
+        } finally {
+            tempFile.delete()
+        }
+    }
+
+    private fun InputStream.readStatusLine(): String {
+        val builder = StringBuilder()
+        while (true) {
+            val byte = read()
+            if (byte < 0) throw IOException("Connection was closed by the coverage endpoint")
+            if (byte == '\n'.code) break
+            builder.append(byte.toChar())
+        }
+        return builder.toString()
+    }
+
+    private companion object {
+        const val CONNECT_TIMEOUT_MILLIS = 10000
+
+        const val READ_TIMEOUT_MILLIS = 60000
+    }
+}
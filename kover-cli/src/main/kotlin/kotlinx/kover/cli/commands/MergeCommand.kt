@@ -21,6 +21,7 @@ import org.kohsuke.args4j.Argument
 import org.kohsuke.args4j.Option
 import java.io.File
 import java.io.PrintWriter
+import kotlin.io.path.createTempDirectory
 
 
 internal class MergeCommand : Command {
@@ -35,18 +36,77 @@ internal class MergeCommand : Command {
     )
     private var targetReport: File? = null
 
+    @Option(
+        name = "--shards",
+        usage = "report path specified in the kover.offline.report.path property of processes that saved reports in shards, all its shard files are merged",
+        metaVar = "<report-path>"
+    )
+    private var shards: MutableList<File> = ArrayList()
+
+    @Option(
+        name = "--batch-size",
+        usage = "merge reports in batches of specified size to limit memory consumption, must be greater than 1",
+        metaVar = "<count>"
+    )
+    private var batchSize: Int? = null
+
+    @Option(
+        name = "--threads",
+        usage = "number of threads to merge reports in parallel, if --batch-size is not specified, the reports are split evenly between threads",
+        metaVar = "<count>"
+    )
+    private var threads: Int = 1
+
     override val name: String = "merge"
 
     override val description: String = "Merge binary report files into one"
 
 
     override fun call(output: PrintWriter, errorWriter: PrintWriter): Int {
+        val batch = batchSize
+        if (batch != null && batch < 2) {
+            errorWriter.println("Batch size must be greater than 1, actual: $batch")
+            return -1
+        }
+        if (threads < 1) {
+            errorWriter.println("Number of threads must be positive, actual: $threads")
+            return -1
+        }
+
+        val reports = binaryReports + shards.flatMap { it.shardFiles() }
+        // with several threads, reports are merged in parallel by batches even if the batch size is not specified
+        val effectiveBatch = batch ?: if (threads > 1) maxOf(2, (reports.size + threads - 1) / threads) else null
+
         try {
-            KoverLegacyFeatures.mergeIc(targetReport!!, binaryReports)
+            if (effectiveBatch == null) {
+                KoverLegacyFeatures.mergeIc(targetReport!!, reports)
+            } else {
+                val tempDir = createTempDirectory("kover-merge").toFile()
+                try {
+                    KoverLegacyFeatures.mergeIc(targetReport!!, reports, tempDir, effectiveBatch, threads)
+                } finally {
+                    tempDir.deleteRecursively()
+                }
+            }
         } catch (e: Exception) {
             errorWriter.println("Binary reports merging failed: " + e.message)
             return -1
         }
         return 0
     }
+
+    /**
+     * Find shard files written by the offline runtime for the report path: `<name>-<pid>-<random>.<extension>`.
+     *
+     * Only names in this exact format are matched, so other files with the same prefix, e.g. `<name>-merged.<extension>`, are not merged.
+     */
+    private fun File.shardFiles(): List<File> {
+        val extension = if (name.lastIndexOf('.') > 0) "." + name.substringAfterLast('.') else ""
+        val baseName = name.removeSuffix(extension)
+        val shardName = Regex(Regex.escape(baseName) + "-\\d+-[0-9a-f]+" + Regex.escape(extension))
+        val directory = absoluteFile.parentFile ?: return emptyList()
+        return directory.listFiles { file -> file.isFile && shardName.matches(file.name) }
+            ?.sortedBy { it.name }
+            ?: emptyList()
+    }
 }
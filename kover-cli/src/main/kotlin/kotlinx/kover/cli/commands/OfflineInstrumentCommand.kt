@@ -26,7 +26,7 @@ import java.io.PrintWriter
 
 internal class OfflineInstrumentCommand : Command {
     // hint: MutableList used to remove variance, args4j accept java.util.List<File> but not java.util.List<? extends File>
-    @Argument(usage = "list of the compiled class-files roots", metaVar = "<class-file-path>", required = true)
+    @Argument(usage = "list of the compiled class-files roots or JAR archives", metaVar = "<class-file-path>", required = true)
     private var roots: MutableList<File> = ArrayList()
 
     @Option(name = "--dest", usage = "path to write instrumented Java classes to", metaVar = "<dir>", required = true)
@@ -56,12 +56,30 @@ internal class OfflineInstrumentCommand : Command {
     )
     private var excludeAnnotation: MutableList<String> = ArrayList()
 
+    @Option(
+        name = "--threads",
+        usage = "number of threads to instrument class-files, class-files are instrumented in parallel if it is greater than 1 and there are no annotation filters",
+        metaVar = "<count>"
+    )
+    private var threads: Int = 1
+
+    @Option(
+        name = "--incremental",
+        usage = "instrument only class-files changed since the previous instrumentation to the same destination, not applicable with annotation filters"
+    )
+    private var incremental = false
+
     override val name: String = "instrument"
 
     override val description: String = "Offline instrumentation of JVM class-files"
 
 
     override fun call(output: PrintWriter, errorWriter: PrintWriter): Int {
+        if (threads < 1) {
+            errorWriter.println("Number of threads must be positive, actual: $threads")
+            return -1
+        }
+
         val filters = ClassFilters(
             includeClasses.toSet(),
             excludeClasses.toSet(),
@@ -71,8 +89,16 @@ internal class OfflineInstrumentCommand : Command {
             emptySet()
         )
 
+        // archives are written to the destination directory with the same file names
+        val (archives, dirs) = roots.partition { it.isFile }
+
         try {
-            KoverLegacyFeatures.instrument(outputDir!!, roots, filters, countHits)
+            if (dirs.isNotEmpty()) {
+                KoverLegacyFeatures.instrument(outputDir!!, dirs, filters, countHits, threads, incremental)
+            }
+            archives.forEach { archive ->
+                KoverLegacyFeatures.instrumentArchive(outputDir!!.resolve(archive.name), archive, filters, countHits, threads)
+            }
         } catch (e: Exception) {
             errorWriter.println("Instrumentation failed: " + e.message)
             return -1
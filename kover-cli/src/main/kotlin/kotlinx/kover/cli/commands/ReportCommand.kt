@@ -21,8 +21,8 @@ import kotlinx.kover.features.jvm.KoverLegacyFeatures
 import org.kohsuke.args4j.Argument
 import org.kohsuke.args4j.Option
 import java.io.File
-import java.io.IOException
 import java.io.PrintWriter
+import kotlin.io.path.createTempDirectory
 
 
 internal class ReportCommand : Command {
@@ -91,6 +91,13 @@ internal class ReportCommand : Command {
     )
     private var includeInheritedFrom: MutableList<String> = ArrayList()
 
+    @Option(
+        name = "--threads",
+        usage = "number of threads to analyze class-files, class-files roots are analyzed in parallel if it is greater than 1",
+        metaVar = "<count>"
+    )
+    private var threads: Int = 1
+
     override val name: String = "report"
 
     override val description: String = "Generates human-readable reports in various formats from binary report files"
@@ -106,26 +113,53 @@ internal class ReportCommand : Command {
             excludeInheritedFrom.toSet()
         )
 
-        var fail = false
-        if (xmlFile != null) {
-            try {
-                KoverLegacyFeatures.generateXmlReport(xmlFile!!, binaryReports, outputRoots, sourceRoots, title ?: "Kover XML Report", filters)
-            } catch (e: IOException) {
-                fail = true
-                errorWriter.println("XML generation failed: " + e.message)
-            }
-        }
-        if (htmlDir != null) {
-            try {
-                KoverLegacyFeatures.generateHtmlReport(htmlDir!!, null, binaryReports, outputRoots, sourceRoots, title ?: "Kover HTML Report", filters)
-            } catch (e: IOException) {
-                fail = true
-                errorWriter.println("HTML generation failed: " + e.message)
-            }
+        if (threads < 1) {
+            errorWriter.println("Number of threads must be positive, actual: $threads")
+            return -1
         }
+
         if (xmlFile == null && htmlDir == null) {
             errorWriter.println("At least one format must be used: XML, HTML.")
-            fail = true
+            return -1
+        }
+
+        val missingReports = binaryReports.filter { !it.isFile }
+        if (missingReports.isNotEmpty()) {
+            missingReports.forEach { errorWriter.println("Binary report file '${it.path}' does not exist") }
+            return -1
+        }
+
+        // binary reports are read and class-files are analyzed once for all requested formats
+        val tempDir = createTempDirectory("kover-report").toFile()
+        var fail = false
+        try {
+            val session = try {
+                KoverLegacyFeatures.openSession(tempDir, binaryReports, outputRoots, sourceRoots, filters, threads)
+            } catch (e: Exception) {
+                errorWriter.println("Reading of binary reports and analysis of class-files failed: " + e.message)
+                return -1
+            }
+
+            session.use {
+                if (xmlFile != null) {
+                    try {
+                        session.generateXmlReport(xmlFile!!, title ?: "Kover XML Report")
+                    } catch (e: Exception) {
+                        fail = true
+                        errorWriter.println("XML generation failed: " + e.message)
+                    }
+                }
+                if (htmlDir != null) {
+                    try {
+                        session.generateHtmlReport(htmlDir!!, null, title ?: "Kover HTML Report")
+                    } catch (e: Exception) {
+                        fail = true
+                        errorWriter.println("HTML generation failed: " + e.message)
+                    }
+                }
+            }
+        } finally {
+            tempDir.deleteRecursively()
         }
         return if (fail) -1 else 0
     }
@@ -75,7 +75,7 @@ internal class RootCommand : Command {
 
     companion object {
         val commands: List<Command> =
-            listOf(OfflineInstrumentCommand(), ReportCommand(), MergeCommand())
+            listOf(OfflineInstrumentCommand(), ReportCommand(), MergeCommand(), DumpCommand())
 
         private fun joinedCommandNames(): String {
             return commands.joinToString(" | ") { it.name ?: "" }
@@ -16,15 +16,32 @@
 
 package kotlinx.kover.cli.tests
 
+import com.intellij.rt.coverage.offline.RawProjectInit
 import kotlinx.kover.cli.invokeCli
+import kotlinx.kover.offline.runtime.api.KoverRuntime
 import java.io.File
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.nio.charset.Charset
+import java.util.zip.GZIPOutputStream
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+import kotlin.concurrent.thread
 import kotlin.io.path.createTempDirectory
 import kotlin.test.Test
 import kotlin.test.assertContains
 import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotEquals
+import kotlin.test.assertTrue
 
 private const val RESOURCES_PATH = "src/test/resources"
 
+private const val EXAMPLE_CLASS_ENTRY = "org/jetbrains/kover/test/ExampleClass.class"
+
+private val MANIFEST = "Manifest-Version: 1.0\n".toByteArray()
+
 class SimpleTests {
     @Test
     fun instrument() {
@@ -44,6 +61,191 @@ class SimpleTests {
         assertEquals(0, invokeCli(args.toTypedArray()))
     }
 
+    @Test
+    fun incrementalInstrument() {
+        val tempDir = createTempDirectory("kover-offline-test").toFile()
+        // class-files are copied because they are modified during the test
+        val classes = tempDir.resolve("classes")
+        File("$RESOURCES_PATH/classes").copyRecursively(classes)
+        val dir = tempDir.resolve("instrumented")
+
+        val args = buildList {
+            add("instrument")
+            add(classes.canonicalPath)
+            add("--dest")
+            add(dir.canonicalPath)
+            add("--incremental")
+            add("--threads")
+            add("2")
+        }
+
+        val exampleClass = "org/jetbrains/kover/test/ExampleClass.class"
+        val dataClass = "org/jetbrains/kover/test/DataClass.class"
+        // the modification time of the outputs is moved to the past, so it changes only if the output is written again
+        val oldTime = System.currentTimeMillis() - 3_600_000
+        fun resetTimes() = listOf(exampleClass, dataClass).map { dir.resolve(it) }.filter { it.exists() }.forEach { it.setLastModified(oldTime) }
+        fun isRewritten(path: String) = dir.resolve(path).lastModified() != oldTime
+
+        println("Incremental offline instrumentation with args: " + args.joinToString(" "))
+        assertEquals(0, invokeCli(args.toTypedArray()))
+        val firstRunFiles = dir.walkTopDown().filter { it.isFile }.map { it.relativeTo(dir).invariantSeparatorsPath }.toSet()
+        // the manifest is stored outside the destination, so it is not packaged with the class-files
+        assertTrue(dir.parentFile.resolve(".kover/${dir.name}.manifest").isFile)
+        assertFalse(firstRunFiles.any { it.endsWith(".manifest") })
+        assertContains(firstRunFiles, exampleClass)
+        assertContains(firstRunFiles, dataClass)
+
+        // nothing has changed, so the same files are expected and they are not written again
+        resetTimes()
+        assertEquals(0, invokeCli(args.toTypedArray()))
+        assertEquals(firstRunFiles, dir.walkTopDown().filter { it.isFile }.map { it.relativeTo(dir).invariantSeparatorsPath }.toSet())
+        assertFalse(isRewritten(exampleClass))
+        assertFalse(isRewritten(dataClass))
+
+        // change the string constant in the class, the class-file remains valid
+        val content = classes.resolve(exampleClass).readBytes()
+        val index = String(content, Charsets.ISO_8859_1).indexOf("AAA")
+        content.fill('B'.code.toByte(), index, index + 3)
+        classes.resolve(exampleClass).writeBytes(content)
+
+        // only the changed class is instrumented again
+        val previousOutput = dir.resolve(exampleClass).readBytes()
+        resetTimes()
+        assertEquals(0, invokeCli(args.toTypedArray()))
+        assertTrue(isRewritten(exampleClass))
+        assertFalse(isRewritten(dataClass))
+        assertFalse(previousOutput.contentEquals(dir.resolve(exampleClass).readBytes()))
+        assertContains(dir.resolve(exampleClass).readText(Charsets.ISO_8859_1), "BBB")
+
+        // the output of the deleted class is removed
+        classes.resolve(dataClass).delete()
+        resetTimes()
+        assertEquals(0, invokeCli(args.toTypedArray()))
+        assertFalse(dir.resolve(dataClass).exists())
+        assertFalse(isRewritten(exampleClass))
+
+        // other filters change the instrumentation settings, so all classes are instrumented again
+        resetTimes()
+        assertEquals(0, invokeCli((args + listOf("--exclude", "com.example.Absent")).toTypedArray()))
+        assertTrue(isRewritten(exampleClass))
+    }
+
+    @Test
+    fun instrumentJar() {
+        val dir = createTempDirectory("kover-offline-test").toFile()
+        val jar = dir.resolve("classes.jar")
+        writeJar(jar, jarClasses() + mapOf("META-INF/MANIFEST.MF" to MANIFEST, "data/resource.txt" to "resource".toByteArray()))
+
+        val instrumented = instrumentJar(jar, dir.resolve("instrumented"), "--exclude", "org.jetbrains.kover.test.DataClass")
+
+        val original = readJar(jar)
+        assertEquals(original.keys.toList(), instrumented.keys.toList())
+        // only matched class-files are changed, all other entries are copied as is
+        assertFalse(original.getValue(EXAMPLE_CLASS_ENTRY).contentEquals(instrumented.getValue(EXAMPLE_CLASS_ENTRY)))
+        original.filterKeys { it != EXAMPLE_CLASS_ENTRY }.forEach { (name, bytes) ->
+            assertTrue(bytes.contentEquals(instrumented.getValue(name)), "Entry '$name' is changed")
+        }
+    }
+
+    @Test
+    fun instrumentSignedJar() {
+        val dir = createTempDirectory("kover-offline-test").toFile()
+        val jar = dir.resolve("signed.jar")
+        val signatureFiles = mapOf("META-INF/TEST.SF" to "signature".toByteArray(), "META-INF/TEST.RSA" to "key".toByteArray())
+        writeJar(jar, mapOf("META-INF/MANIFEST.MF" to MANIFEST) + signatureFiles + jarClasses())
+
+        // the signature becomes invalid after instrumentation, so signature files are removed
+        val instrumented = instrumentJar(jar, dir.resolve("instrumented"))
+        assertEquals(readJar(jar).keys - signatureFiles.keys, instrumented.keys)
+
+        // nothing is instrumented, so the signature remains valid
+        val notInstrumented = instrumentJar(jar, dir.resolve("excluded"), "--exclude", "*")
+        assertEquals(readJar(jar).keys, notInstrumented.keys)
+    }
+
+    @Test
+    fun instrumentZip64Jar() {
+        val dir = createTempDirectory("kover-offline-test").toFile()
+        val jar = dir.resolve("large.jar")
+        // archive with more than 65535 entries is written in ZIP64 format, which is instrumented with recompression
+        val resources = (0 until 70_000).associate { i -> "data/$i.txt" to i.toString().toByteArray() }
+        writeJar(jar, jarClasses() + resources)
+
+        val instrumented = instrumentJar(jar, dir.resolve("instrumented"))
+
+        val original = readJar(jar)
+        assertEquals(original.keys.toList(), instrumented.keys.toList())
+        assertFalse(original.getValue(EXAMPLE_CLASS_ENTRY).contentEquals(instrumented.getValue(EXAMPLE_CLASS_ENTRY)))
+        resources.forEach { (name, bytes) ->
+            assertTrue(bytes.contentEquals(instrumented.getValue(name)), "Entry '$name' is changed")
+        }
+    }
+
+    @Test
+    fun instrumentPrefixedJarWithLegacyNames() {
+        val dir = createTempDirectory("kover-offline-test").toFile()
+        // names are encoded in CP437 without UTF-8 flag, and the archive is preceded by a launcher script
+        val legacyCharset = Charset.forName("IBM437")
+        val archive = dir.resolve("archive.zip")
+        writeJar(archive, jarClasses() + mapOf("data/caf\u00e9.txt" to "resource".toByteArray()), legacyCharset)
+        val launcher = "#!/bin/sh\nexec java -jar \"\$0\" \"\$@\"\n".toByteArray()
+        val jar = dir.resolve("app.jar")
+        jar.writeBytes(launcher + archive.readBytes())
+
+        val dest = dir.resolve("instrumented")
+        val args = listOf("instrument", jar.canonicalPath, "--dest", dest.canonicalPath)
+        println("Offline instrumentation of prefixed JAR with args: " + args.joinToString(" "))
+        assertEquals(0, invokeCli(args.toTypedArray()))
+
+        val result = dest.resolve(jar.name)
+        assertTrue(launcher.contentEquals(result.readBytes().copyOf(launcher.size)), "Launcher script is not copied")
+        val original = readJar(jar, legacyCharset)
+        val instrumented = readJar(result, legacyCharset)
+        assertEquals(original.keys.toList(), instrumented.keys.toList())
+        assertFalse(original.getValue(EXAMPLE_CLASS_ENTRY).contentEquals(instrumented.getValue(EXAMPLE_CLASS_ENTRY)))
+        assertTrue(original.getValue("data/caf\u00e9.txt").contentEquals(instrumented.getValue("data/caf\u00e9.txt")))
+    }
+
+    /**
+     * Instrument [jar] into [dest] directory and read the content of the instrumented JAR.
+     */
+    private fun instrumentJar(jar: File, dest: File, vararg extraArgs: String): Map<String, ByteArray> {
+        val args = buildList {
+            add("instrument")
+            add(jar.canonicalPath)
+            add("--dest")
+            add(dest.canonicalPath)
+            add("--threads")
+            add("2")
+            addAll(extraArgs)
+        }
+
+        println("Offline instrumentation of JAR with args: " + args.joinToString(" "))
+        assertEquals(0, invokeCli(args.toTypedArray()))
+        return readJar(dest.resolve(jar.name))
+    }
+
+    private fun jarClasses(): Map<String, ByteArray> {
+        val classes = File("$RESOURCES_PATH/classes")
+        return classes.walkTopDown().filter { it.isFile }.associate { file -> file.relativeTo(classes).invariantSeparatorsPath to file.readBytes() }
+    }
+
+    private fun writeJar(jar: File, entries: Map<String, ByteArray>, charset: Charset = Charsets.UTF_8) {
+        ZipOutputStream(jar.outputStream().buffered(), charset).use { zip ->
+            entries.forEach { (name, bytes) ->
+                zip.putNextEntry(ZipEntry(name))
+                zip.write(bytes)
+                zip.closeEntry()
+            }
+        }
+    }
+
+    private fun readJar(jar: File, charset: Charset = Charsets.UTF_8): Map<String, ByteArray> {
+        return ZipFile(jar, charset).use { zip ->
+            zip.entries().asSequence().associate { entry -> entry.name to zip.getInputStream(entry).use { it.readBytes() } }
+        }
+    }
+
     @Test
     fun report() {
         val classes = File("$RESOURCES_PATH/classes")
@@ -71,6 +273,33 @@ class SimpleTests {
         assertEquals(0, invokeCli(args.toTypedArray()))
     }
 
+    @Test
+    fun reportWithInvalidBinaryReports() {
+        val classes = File("$RESOURCES_PATH/classes")
+        val sources = File("$RESOURCES_PATH/sources")
+        val dir = createTempDirectory("kover-report-test").toFile()
+
+        val invalid = dir.resolve("invalid.ic")
+        invalid.writeText("not a binary report")
+
+        for (report in listOf(dir.resolve("missing.ic"), invalid)) {
+            val args = buildList {
+                add("report")
+                add(report.canonicalPath)
+                add("--src")
+                add(sources.canonicalPath)
+                add("--classfiles")
+                add(classes.canonicalPath)
+                add("--xml")
+                add(dir.resolve("report.xml").canonicalPath)
+            }
+
+            println("Generate report with args: " + args.joinToString(" "))
+            assertNotEquals(0, invokeCli(args.toTypedArray()))
+            assertFalse(dir.resolve("report.xml").exists())
+        }
+    }
+
     @Test
     fun merge() {
         // class `com.example.A` is present only in test1.ic and `com.example.B` only in test2.ic
@@ -95,4 +324,197 @@ class SimpleTests {
         assertContains(contentAsUtf8, "com.example.A")
         assertContains(contentAsUtf8, "com.example.B")
     }
-}
\ No newline at end of file
+
+    @Test
+    fun batchMerge() {
+        val ic1 = File("$RESOURCES_PATH/merge/test1.ic")
+        val ic2 = File("$RESOURCES_PATH/merge/test2.ic")
+
+        val target = kotlin.io.path.createTempFile("kover-merge-test", ".ic").toFile()
+
+        // batches of 2 reports require two rounds of merging
+        val args = buildList {
+            add("merge")
+            add(ic1.canonicalPath)
+            add(ic2.canonicalPath)
+            add(ic1.canonicalPath)
+            add("--target")
+            add(target.canonicalPath)
+            add("--batch-size")
+            add("2")
+            add("--threads")
+            add("2")
+        }
+
+        println("Merge reports in batches, args: " + args.joinToString(" "))
+        assertEquals(0, invokeCli(args.toTypedArray()))
+
+        val contentAsUtf8 = target.readText()
+        assertContains(contentAsUtf8, "com.example.A")
+        assertContains(contentAsUtf8, "com.example.B")
+    }
+
+    @Test
+    fun compressedMerge() {
+        val ic1 = File("$RESOURCES_PATH/merge/test1.ic")
+        val ic2 = File("$RESOURCES_PATH/merge/test2.ic")
+
+        // compressed and uncompressed reports are merged together
+        val compressed = kotlin.io.path.createTempFile("kover-compressed-test", ".ic").toFile()
+        GZIPOutputStream(compressed.outputStream()).use { output -> ic2.inputStream().use { it.copyTo(output) } }
+
+        val target = kotlin.io.path.createTempFile("kover-merge-test", ".ic").toFile()
+
+        val args = buildList {
+            add("merge")
+            add(ic1.canonicalPath)
+            add(compressed.canonicalPath)
+            add("--target")
+            add(target.canonicalPath)
+        }
+
+        println("Merge compressed reports, args: " + args.joinToString(" "))
+        assertEquals(0, invokeCli(args.toTypedArray()))
+
+        val contentAsUtf8 = target.readText()
+        assertContains(contentAsUtf8, "com.example.A")
+        assertContains(contentAsUtf8, "com.example.B")
+    }
+
+    @Test
+    fun compressedBatchMerge() {
+        val ic1 = File("$RESOURCES_PATH/merge/test1.ic")
+        val ic2 = File("$RESOURCES_PATH/merge/test2.ic")
+
+        // compressed reports are decompressed in batches
+        val compressed = kotlin.io.path.createTempFile("kover-compressed-test", ".ic").toFile()
+        GZIPOutputStream(compressed.outputStream()).use { output -> ic2.inputStream().use { it.copyTo(output) } }
+
+        val target = kotlin.io.path.createTempFile("kover-merge-test", ".ic").toFile()
+
+        val args = buildList {
+            add("merge")
+            add(ic1.canonicalPath)
+            add(compressed.canonicalPath)
+            add(compressed.canonicalPath)
+            add("--target")
+            add(target.canonicalPath)
+            add("--batch-size")
+            add("2")
+        }
+
+        println("Merge compressed reports in batches, args: " + args.joinToString(" "))
+        assertEquals(0, invokeCli(args.toTypedArray()))
+
+        val contentAsUtf8 = target.readText()
+        assertContains(contentAsUtf8, "com.example.A")
+        assertContains(contentAsUtf8, "com.example.B")
+    }
+
+    @Test
+    fun shardsMerge() {
+        val ic1 = File("$RESOURCES_PATH/merge/test1.ic")
+        val ic2 = File("$RESOURCES_PATH/merge/test2.ic")
+
+        val dir = createTempDirectory("kover-shards-test").toFile()
+        ic1.copyTo(dir.resolve("report-1234-5f3a9c.ic"))
+        ic2.copyTo(dir.resolve("report-42-0.ic"))
+        // files with the same prefix that are not shards must not be merged, otherwise the merge fails on invalid content
+        dir.resolve("report-merged.ic").writeText("not a binary report")
+        dir.resolve("report-1234-5f3a9c.ic.tmp").writeText("not a binary report")
+
+        val target = dir.resolve("result.ic")
+
+        val args = buildList {
+            add("merge")
+            add("--shards")
+            add(dir.resolve("report.ic").canonicalPath)
+            add("--target")
+            add(target.canonicalPath)
+        }
+
+        println("Merge shards, args: " + args.joinToString(" "))
+        assertEquals(0, invokeCli(args.toTypedArray()))
+
+        val contentAsUtf8 = target.readText()
+        assertContains(contentAsUtf8, "com.example.A")
+        assertContains(contentAsUtf8, "com.example.B")
+    }
+
+    @Test
+    fun dumpFromEndpoint() {
+        val dir = createTempDirectory("kover-dump-test").toFile()
+        val tokenFile = dir.resolve("endpoint.token")
+
+        // simulate the hits of an instrumented class
+        val hits = RawProjectInit.getProjectData().getOrCreateClass("com.example.Endpoint", 2, true).hits as IntArray
+        hits[0] = 1
+
+        val port = KoverRuntime.startEndpoint(0, tokenFile)
+        assertTrue(tokenFile.readText().isNotBlank())
+
+        val target = dir.resolve("dump.ic")
+        val args = buildList {
+            add("dump")
+            add("--address")
+            add(port.toString())
+            add("--token-file")
+            add(tokenFile.canonicalPath)
+            add("--target")
+            add(target.canonicalPath)
+        }
+
+        println("Dump from endpoint, args: " + args.joinToString(" "))
+        assertEquals(0, invokeCli(args.toTypedArray()))
+        assertContains(target.readText(), "com.example.Endpoint")
+
+        // the coverage is reset after the report is taken, so the next report does not contain the hits
+        val snapshot = dir.resolve("snapshot.ic")
+        val snapshotArgs = args.dropLast(1) + listOf("--reset", "--target", snapshot.canonicalPath)
+        assertEquals(0, invokeCli(snapshotArgs.toTypedArray()))
+        assertContains(snapshot.readText(), "com.example.Endpoint")
+        assertEquals(0, invokeCli(snapshotArgs.toTypedArray()))
+        assertFalse(snapshot.readText().contains("com.example.Endpoint"))
+
+        // requests without the valid token are rejected
+        val wrongTokenFile = dir.resolve("wrong.token")
+        wrongTokenFile.writeText("wrong")
+        val wrongArgs = args.map { if (it == tokenFile.canonicalPath) wrongTokenFile.canonicalPath else it }
+        assertNotEquals(0, invokeCli(wrongArgs.toTypedArray()))
+    }
+
+    @Test
+    fun dumpWithTruncatedReport() {
+        val dir = createTempDirectory("kover-dump-test").toFile()
+        val tokenFile = dir.resolve("endpoint.token")
+        tokenFile.writeText("token")
+        val target = dir.resolve("dump.ic")
+        target.writeText("previous report")
+
+        // the endpoint closes the connection before the whole report is sent
+        ServerSocket(0, 1, InetAddress.getLoopbackAddress()).use { server ->
+            thread(isDaemon = true) {
+                server.accept().use { socket ->
+                    socket.getInputStream().bufferedReader(Charsets.US_ASCII).readLine()
+                    socket.getOutputStream().write("OK 100\n0123456789".toByteArray(Charsets.US_ASCII))
+                }
+            }
+
+            val args = buildList {
+                add("dump")
+                add("--address")
+                add(server.localPort.toString())
+                add("--token-file")
+                add(tokenFile.canonicalPath)
+                add("--target")
+                add(target.canonicalPath)
+            }
+
+            println("Dump from endpoint, args: " + args.joinToString(" "))
+            assertNotEquals(0, invokeCli(args.toTypedArray()))
+        }
+
+        assertEquals("previous report", target.readText())
+        assertEquals(listOf("dump.ic", "endpoint.token"), dir.list()!!.sorted())
+    }
+}
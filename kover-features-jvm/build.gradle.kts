@@ -65,4 +65,6 @@ tasks.processResources {
 
 dependencies {
     implementation(libs.intellij.reporter)
+
+    testImplementation(kotlin("test"))
 }
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm
+
+import java.io.File
+
+/**
+ * Settings of the on-disk cache of class-files analysis.
+ *
+ * Results of the analysis of each class-file are stored in [directory] and reused by the subsequent
+ * aggregation, verification and report generation, if the content of the class-file has not changed.
+ *
+ * Cache entries that have not been used for more than [maxAgeMillis] milliseconds are removed,
+ * the least recently used entries are also removed if the total size of the cache exceeds [maxSizeBytes].
+ */
+public data class AnalysisCache(
+    val directory: File,
+    val maxSizeBytes: Long,
+    val maxAgeMillis: Long
+)
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm
+
+/**
+ * Number of [covered] and [missed] code units (lines, branches, instructions).
+ */
+public data class CoverageCounter(val covered: Int, val missed: Int)
+
+/**
+ * Coverage counters of the entity with name [entityName].
+ *
+ * Entity could be class, package or the whole application, for the application [entityName] is `null`.
+ */
+public data class EntityCoverage(
+    val entityName: String?,
+    val lines: CoverageCounter,
+    val branches: CoverageCounter,
+    val instructions: CoverageCounter
+)
+
+/**
+ * Coverage counters of the method with JVM signature [signature], declared in the class with name [className].
+ */
+public data class MethodCoverage(
+    val className: String,
+    val signature: String,
+    val lines: CoverageCounter,
+    val branches: CoverageCounter,
+    val instructions: CoverageCounter
+)
+
+/**
+ * Request to calculate coverage values: for each entity of type [groupBy],
+ * a value of [aggregationForGroup] type is calculated over [coverageUnit] counter.
+ */
+public data class CoverageQuery(
+    val groupBy: GroupingBy,
+    val coverageUnit: CoverageUnit,
+    val aggregationForGroup: AggregationType
+)
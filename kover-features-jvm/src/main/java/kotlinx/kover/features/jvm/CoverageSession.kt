@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm
+
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+
+/**
+ * Coverage of the application loaded once from binary reports and class-files.
+ *
+ * Binary reports are read and class-files are analyzed only when the session is opened,
+ * all reports, verification and coverage values are produced from the analyzed data.
+ *
+ * The session should be closed after use, in this case all temporary files are deleted.
+ *
+ * Instance can be created by [KoverLegacyFeatures.openSession].
+ */
+public interface CoverageSession : Closeable {
+    /**
+     * Generate Kover XML report, compatible with JaCoCo XML.
+     *
+     * @param xmlFile Path to the generated XML report
+     * @param title   Title for header
+     * @throws IOException In case of a report generation error
+     */
+    @Throws(IOException::class)
+    public fun generateXmlReport(xmlFile: File, title: String)
+
+    /**
+     * Generate Kover HTML report.
+     *
+     * @param htmlDir     Output directory with result HTML report
+     * @param charsetName Name of charset used in HTML report
+     * @param title       Title for header
+     * @throws IOException In case of a report generation error
+     */
+    @Throws(IOException::class)
+    public fun generateHtmlReport(htmlDir: File, charsetName: String?, title: String)
+
+    /**
+     * Write coverage of the session to single IC file.
+     *
+     * @param icFile Target IC report file
+     * @throws IOException In case of an error writing the file
+     */
+    @Throws(IOException::class)
+    public fun aggregateIc(icFile: File)
+
+    /**
+     * Verify coverage by specified verification rules.
+     *
+     * @param rules List of the verification rules to check
+     * @return List of rule violation errors, empty list if there is no verification errors.
+     */
+    public fun verify(rules: List<Rule>): List<RuleViolations>
+
+    /**
+     * Get coverage values.
+     *
+     * @param groupBy             Code unit for which coverage will be aggregated
+     * @param coverageUnit        Specify which units to measure coverage for (line, branch, etc.)
+     * @param aggregationForGroup Aggregation function that will be calculated over all the elements of the same group
+     * @return List of coverage values.
+     */
+    public fun evalCoverage(
+        groupBy: GroupingBy,
+        coverageUnit: CoverageUnit,
+        aggregationForGroup: AggregationType
+    ): List<CoverageValue>
+
+    /**
+     * Get coverage values for several queries at once.
+     *
+     * @param queries Requested kinds of coverage values
+     * @return Coverage values for each query.
+     */
+    public fun evalCoverage(queries: List<CoverageQuery>): Map<CoverageQuery, List<CoverageValue>>
+
+    /**
+     * Get covered and missed counters of lines, branches and instructions for each entity of the given type.
+     *
+     * @param groupBy Type of entities for which coverage will be aggregated
+     * @return List of counters sorted by entity name.
+     */
+    public fun coverage(groupBy: GroupingBy): List<EntityCoverage>
+
+    /**
+     * Get covered and missed counters of lines, branches and instructions for each method.
+     *
+     * @return List of counters sorted by class name and method signature.
+     */
+    public fun methodsCoverage(): List<MethodCoverage>
+}
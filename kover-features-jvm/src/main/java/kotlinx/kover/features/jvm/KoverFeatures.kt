@@ -5,6 +5,7 @@
 package kotlinx.kover.features.jvm
 
 import kotlinx.kover.features.jvm.impl.OfflineInstrumenterImpl
+import kotlinx.kover.features.jvm.impl.wildcardsToCombinedRegex
 import kotlinx.kover.features.jvm.impl.wildcardsToRegex
 import java.util.*
 
@@ -27,9 +28,22 @@ public object KoverFeatures {
         return template.wildcardsToRegex()
     }
 
+    /**
+     * Converts several Kover [templates] to a single regular expression string.
+     *
+     * The resulting regular expression matches a string if it matches at least one of the [templates].
+     * Common literal prefixes of the templates are merged, so matching against a combined regular expression
+     * is faster than matching against each template separately.
+     */
+    public fun koverWildcardsToRegex(templates: Collection<String>): String {
+        return templates.wildcardsToCombinedRegex()
+    }
+
     /**
      * Create instance to instrument already compiled class-files.
      *
+     * Hits are not counted, the instrumented code only registers the fact of at least one execution of each block of code.
+     *
      * @return instrumenter for offline instrumentation.
      */
     public fun createOfflineInstrumenter(): OfflineInstrumenter {
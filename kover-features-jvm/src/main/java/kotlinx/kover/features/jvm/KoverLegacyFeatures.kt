@@ -5,58 +5,110 @@
 package kotlinx.kover.features.jvm
 
 import com.intellij.rt.coverage.aggregate.api.AggregatorApi
-import com.intellij.rt.coverage.aggregate.api.Request
 import com.intellij.rt.coverage.instrument.api.OfflineInstrumentationApi
-import com.intellij.rt.coverage.report.api.ReportApi
-import com.intellij.rt.coverage.util.ErrorReporter
+import kotlinx.kover.features.jvm.impl.ArchiveInstrumentation
+import kotlinx.kover.features.jvm.impl.CompressedReports
 import kotlinx.kover.features.jvm.impl.ConDySettings
+import kotlinx.kover.features.jvm.impl.CoverageSessionImpl
+import kotlinx.kover.features.jvm.impl.IncrementalInstrumentation
 import kotlinx.kover.features.jvm.impl.LegacyVerification
+import kotlinx.kover.features.jvm.impl.ParallelAggregation
+import kotlinx.kover.features.jvm.impl.ParallelInstrumentation
+import kotlinx.kover.features.jvm.impl.ReportMerging
 import kotlinx.kover.features.jvm.impl.convert
 import java.io.File
 import java.io.IOException
-import java.math.BigDecimal
+import java.nio.file.Files
 
 /**
  * Kover Features for support Kover capabilities in Kover CLI via outdated API.
  */
 public object KoverLegacyFeatures {
-    private const val FREE_MARKER_LOGGER_PROPERTY_NAME = "org.freemarker.loggerLibrary"
-
     /**
      * Generate modified class-files to measure the coverage.
      *
      * @param resultDir    Directory where the instrumented class-files will be placed
      * @param originalDirs Root directories where the original files are located, the coverage of which needs to be measured
      * @param filters      Filters to limit the classes that will be displayed in the report
-     * @param countHits    Flag indicating whether to count the number of executions to each block of code. `false` if it is enough to register only the fact of at least one execution
+     * @param countHits    Flag indicating whether to count the number of executions to each block of code. `false` if it is enough to register only the fact of at least one execution, it has the lowest overhead of instrumented code
+     * @param parallelism  Number of threads to instrument class-files, class-files are instrumented in parallel if it is greater than `1` and there are no annotation or inheritance filters
+     * @param incremental  Flag indicating whether to instrument only the class-files changed since the previous instrumentation into [resultDir].
+     * The manifest of the instrumented files is stored as `.kover/<result-dir-name>.manifest` in the parent directory of [resultDir],
+     * so it is not packaged with the class-files. The outputs of the deleted class-files are removed.
+     * Ignored if there are annotation or inheritance filters
      */
+    @JvmOverloads
     public fun instrument(
-        resultDir: File, originalDirs: List<File?>, filters: ClassFilters, countHits: Boolean
+        resultDir: File,
+        originalDirs: List<File?>,
+        filters: ClassFilters,
+        countHits: Boolean,
+        parallelism: Int = 1,
+        incremental: Boolean = false
     ) {
+        require(parallelism > 0) { "Parallelism should be positive, actual: $parallelism" }
+
+        val nameFiltersOnly = ParallelInstrumentation.isApplicable(filters)
+        if (incremental && nameFiltersOnly) {
+            IncrementalInstrumentation.instrument(resultDir, originalDirs.filterNotNull(), filters, countHits, parallelism)
+            return
+        }
+
+        // the manifest no longer matches the content of the result directory
+        IncrementalInstrumentation.invalidate(resultDir)
+
+        if (parallelism > 1 && nameFiltersOnly) {
+            ParallelInstrumentation.instrument(resultDir, originalDirs.filterNotNull(), filters, countHits, parallelism)
+            return
+        }
+
         val outputs = ArrayList<File>(originalDirs.size)
         for (i in originalDirs.indices) {
             outputs.add(resultDir)
         }
 
-        val previousConDySetting = ConDySettings.disableConDy()
-        try {
+        ConDySettings.withDisabledConDy {
             OfflineInstrumentationApi.instrument(originalDirs, outputs, filters.convert(), countHits)
-        } finally {
-            ConDySettings.restoreConDy(previousConDySetting)
         }
     }
 
+    /**
+     * Generate JAR or ZIP archive with modified class-files to measure the coverage.
+     *
+     * Class-files accepted by [filters] are instrumented, other entries of the archive are copied without recompression.
+     * Signature files of signed JARs are removed if at least one class-file is instrumented.
+     *
+     * @param resultArchive   Path to the archive with instrumented class-files
+     * @param originalArchive Path to the original JAR or ZIP archive
+     * @param filters         Filters to limit the classes that will be displayed in the report, annotation and inheritance filters are not supported
+     * @param countHits       Flag indicating whether to count the number of executions to each block of code. `false` if it is enough to register only the fact of at least one execution, it has the lowest overhead of instrumented code
+     * @param parallelism     Number of threads to instrument class-files
+     * @throws IOException In case of an instrumentation error
+     */
+    @JvmOverloads
+    public fun instrumentArchive(
+        resultArchive: File, originalArchive: File, filters: ClassFilters, countHits: Boolean, parallelism: Int = 1
+    ) {
+        require(parallelism > 0) { "Parallelism should be positive, actual: $parallelism" }
+        require(ParallelInstrumentation.isApplicable(filters)) { "Annotation and inheritance filters are not supported for the instrumentation of archives" }
+
+        ArchiveInstrumentation.instrument(resultArchive, originalArchive, filters, countHits, parallelism)
+    }
+
     /**
      * Generate Kover XML report, compatible with JaCoCo XML.
      *
      * @param xmlFile       Path to the generated XML report
-     * @param binaryReports List of coverage binary reports in IC format
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
      * @param classfileDirs List of root directories for compiled class-files
      * @param sourceDirs    List of root directories for Java and Kotlin source files
      * @param title         Title for header
      * @param filters       Filters to limit the classes that will be displayed in the report
+     * @param parallelism   Number of threads to analyze class-files, class-files directories are analyzed in parallel if it is greater than `1`
+     * @param cache         Cache of class-files analysis, `null` if class-files should always be analyzed
      * @throws IOException In case of a report generation error
      */
+    @JvmOverloads
     @Throws(IOException::class)
     public fun generateXmlReport(
         xmlFile: File,
@@ -64,9 +116,16 @@ public object KoverLegacyFeatures {
         classfileDirs: List<File>,
         sourceDirs: List<File>,
         title: String,
-        filters: ClassFilters
+        filters: ClassFilters,
+        parallelism: Int = 1,
+        cache: AnalysisCache? = null
     ) {
-        ReportApi.xmlReport(xmlFile, title, binaryReports, classfileDirs, sourceDirs, filters.convert())
+        // reports are generated by the same pipeline for any parallelism, so the result does not depend on the number of threads
+        withTempDir { tempDir ->
+            openSession(tempDir, binaryReports, classfileDirs, sourceDirs, filters, parallelism, cache).use { session ->
+                session.generateXmlReport(xmlFile, title)
+            }
+        }
     }
 
     /**
@@ -74,13 +133,16 @@ public object KoverLegacyFeatures {
      *
      * @param htmlDir       Output directory with result HTML report
      * @param charsetName   Name of charset used in HTML report
-     * @param binaryReports List of coverage binary reports in IC format
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
      * @param classfileDirs List of root directories for compiled class-files
      * @param sourceDirs    List of root directories for Java and Kotlin source files
      * @param title         Title for header
      * @param filters       Filters to limit the classes that will be displayed in the report.
+     * @param parallelism   Number of threads to analyze class-files, class-files directories are analyzed in parallel if it is greater than `1`
+     * @param cache         Cache of class-files analysis, `null` if class-files should always be analyzed
      * @throws IOException In case of a report generation error
      */
+    @JvmOverloads
     @Throws(IOException::class)
     public fun generateHtmlReport(
         htmlDir: File,
@@ -89,26 +151,46 @@ public object KoverLegacyFeatures {
         classfileDirs: List<File>,
         sourceDirs: List<File>,
         title: String,
-        filters: ClassFilters
+        filters: ClassFilters,
+        parallelism: Int = 1,
+        cache: AnalysisCache? = null
     ) {
-        // print to stdout only critical errors
-        ErrorReporter.setLogLevel(ErrorReporter.ERROR)
-
-        // disable freemarker logging to stdout for the time of report generation
-        val oldFreemarkerLogger = System.setProperty(FREE_MARKER_LOGGER_PROPERTY_NAME, "none")
-        try {
-            ReportApi.htmlReport(
-                htmlDir, title, charsetName, binaryReports, classfileDirs, sourceDirs, filters.convert()
-            )
-        } finally {
-            if (oldFreemarkerLogger == null) {
-                System.clearProperty(FREE_MARKER_LOGGER_PROPERTY_NAME)
-            } else {
-                System.setProperty(FREE_MARKER_LOGGER_PROPERTY_NAME, oldFreemarkerLogger)
+        withTempDir { tempDir ->
+            openSession(tempDir, binaryReports, classfileDirs, sourceDirs, filters, parallelism, cache).use { session ->
+                session.generateHtmlReport(htmlDir, charsetName, title)
             }
         }
     }
 
+    /**
+     * Open coverage session: read binary reports and analyze class-files once,
+     * to produce several reports, verification results and coverage values from the same data.
+     *
+     * The returned session must be closed after use.
+     *
+     * @param tempDir       Directory to create temporary files of the session
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
+     * @param classfileDirs List of root directories for compiled class-files
+     * @param sourceDirs    List of root directories for Java and Kotlin source files
+     * @param filters       Filters to limit the classes that will be present in the session
+     * @param parallelism   Number of threads to analyze class-files, class-files directories are analyzed in parallel if it is greater than `1`
+     * @param cache         Cache of class-files analysis, `null` if class-files should always be analyzed
+     * @return opened coverage session.
+     */
+    @JvmOverloads
+    public fun openSession(
+        tempDir: File,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        sourceDirs: List<File>,
+        filters: ClassFilters,
+        parallelism: Int = 1,
+        cache: AnalysisCache? = null
+    ): CoverageSession {
+        return CompressedReports.withDecompressed(binaryReports, tempDir) { reports ->
+            CoverageSessionImpl.open(tempDir, reports, classfileDirs, sourceDirs, filters, parallelism, cache)
+        }
+    }
 
     /**
      * Verify coverage by specified verification rules.
@@ -116,15 +198,57 @@ public object KoverLegacyFeatures {
      * @param rules         List of the verification rules to check
      * @param tempDir       Directory to create temporary files
      * @param filters       Filters to limit the classes that will be verified
-     * @param binaryReports List of coverage binary reports in IC format
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
      * @param classfileDirs List of root directories for compiled class-files
+     * @param parallelism   Number of threads to analyze class-files, class-files directories are analyzed in parallel if it is greater than `1`
+     * @param cache         Cache of class-files analysis, `null` if class-files should always be analyzed
      * @return List of rule violation errors, empty list if there is no verification errors.
      */
+    @JvmOverloads
     public fun verify(
-        rules: List<Rule>, tempDir: File, filters: ClassFilters, binaryReports: List<File>, classfileDirs: List<File>
+        rules: List<Rule>,
+        tempDir: File,
+        filters: ClassFilters,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        parallelism: Int = 1,
+        cache: AnalysisCache? = null
     ): List<RuleViolations> {
         try {
-            return LegacyVerification.verify(rules, tempDir, filters, binaryReports, classfileDirs)
+            return CompressedReports.withDecompressed(binaryReports, tempDir) { reports ->
+                LegacyVerification.verify(rules, tempDir, filters, reports, classfileDirs, parallelism, cache)
+            }
+        } catch (e: IOException) {
+            throw RuntimeException("Kover features exception occurred while verification", e)
+        }
+    }
+
+    /**
+     * Verify coverage by specified verification rules, each rule is checked with its own filters.
+     *
+     * Binary reports are read and class-files are analyzed once for all rules.
+     *
+     * @param rules         List of the verification rules with their filters
+     * @param tempDir       Directory to create temporary files
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
+     * @param classfileDirs List of root directories for compiled class-files
+     * @param parallelism   Number of threads to analyze class-files, class-files directories are analyzed in parallel if it is greater than `1`
+     * @param cache         Cache of class-files analysis, `null` if class-files should always be analyzed
+     * @return List of rule violation errors, empty list if there is no verification errors.
+     */
+    @JvmOverloads
+    public fun verifyWithFilters(
+        rules: List<FilteredRule>,
+        tempDir: File,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        parallelism: Int = 1,
+        cache: AnalysisCache? = null
+    ): List<RuleViolations> {
+        try {
+            return CompressedReports.withDecompressed(binaryReports, tempDir) { reports ->
+                LegacyVerification.verifyWithFilters(rules, tempDir, reports, classfileDirs, parallelism, cache)
+            }
         } catch (e: IOException) {
             throw RuntimeException("Kover features exception occurred while verification", e)
         }
@@ -136,26 +260,62 @@ public object KoverLegacyFeatures {
      * @param icFile        Target IC report file
      * @param filters       Filters to limit the classes that will be placed into result file
      * @param tempDir       Directory to create temporary files
-     * @param binaryReports List of coverage binary reports in IC format
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
      * @param classfileDirs List of root directories for compiled class-files
+     * @param parallelism   Number of threads to analyze class-files, class-files directories are analyzed in parallel if it is greater than `1`
+     * @param cache         Cache of class-files analysis, `null` if class-files should always be analyzed
      */
+    @JvmOverloads
     public fun aggregateIc(
-        icFile: File, filters: ClassFilters, tempDir: File, binaryReports: List<File>, classfileDirs: List<File>
+        icFile: File,
+        filters: ClassFilters,
+        tempDir: File,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        parallelism: Int = 1,
+        cache: AnalysisCache? = null
     ) {
         val smapFile = tempDir.resolve("report.smap")
 
-        val request = Request(filters.convert(), icFile, smapFile)
-        AggregatorApi.aggregate(listOf(request), binaryReports, classfileDirs)
+        val request = ParallelAggregation.AggregationRequest(filters, icFile, smapFile)
+        CompressedReports.withDecompressed(binaryReports, tempDir) { reports ->
+            ParallelAggregation.aggregate(listOf(request), reports, classfileDirs, tempDir, parallelism, cache)
+        }
     }
 
     /**
      * Merge several IC binaryReports into one file without extra filtering.
      *
      * @param icFile        Target IC report file
-     * @param binaryReports List of coverage binary reports in IC format
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
      */
     public fun mergeIc(icFile: File, binaryReports: List<File>) {
-        AggregatorApi.merge(binaryReports, icFile)
+        withTempDir { tempDir ->
+            CompressedReports.withDecompressed(binaryReports, tempDir) { reports ->
+                AggregatorApi.merge(reports, icFile)
+            }
+        }
+    }
+
+    /**
+     * Merge several IC binaryReports into one file without extra filtering, using a limited amount of memory.
+     *
+     * Reports are merged in batches of [batchSize] files, batch results are merged in the same way until one file remains,
+     * so peak memory consumption does not depend on the total number of reports.
+     *
+     * @param icFile        Target IC report file
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
+     * @param tempDir       Directory to create temporary files
+     * @param batchSize     Maximum number of reports merged at once, must be greater than `1`
+     * @param parallelism   Number of threads to merge batches in parallel, must be positive
+     */
+    @JvmOverloads
+    public fun mergeIc(icFile: File, binaryReports: List<File>, tempDir: File, batchSize: Int, parallelism: Int = 1) {
+        require(batchSize > 1) { "Batch size should be greater than 1, actual: $batchSize" }
+        require(parallelism > 0) { "Parallelism should be positive, actual: $parallelism" }
+
+        // compressed reports are decompressed batch by batch during merging
+        ReportMerging.merge(icFile, binaryReports, tempDir, batchSize, parallelism)
     }
 
     /**
@@ -166,10 +326,13 @@ public object KoverLegacyFeatures {
      * @param aggregationForGroup Aggregation function that will be calculated over all the elements of the same group
      * @param tempDir             Directory to create temporary files
      * @param filters             Filters to limit the classes that will be placed into result coverage
-     * @param binaryReports       List of coverage binary reports in IC format
+     * @param binaryReports       List of coverage binary reports in IC format, uncompressed or compressed with GZIP
      * @param classfileDirs       List of root directories for compiled class-files
+     * @param parallelism         Number of threads to analyze class-files, class-files directories are analyzed in parallel if it is greater than `1`
+     * @param cache               Cache of class-files analysis, `null` if class-files should always be analyzed
      * @return List of coverage values.
      */
+    @JvmOverloads
     public fun evalCoverage(
         groupBy: GroupingBy,
         coverageUnit: CoverageUnit,
@@ -177,21 +340,50 @@ public object KoverLegacyFeatures {
         tempDir: File,
         filters: ClassFilters,
         binaryReports: List<File>,
-        classfileDirs: List<File>
+        classfileDirs: List<File>,
+        parallelism: Int = 1,
+        cache: AnalysisCache? = null
     ): List<CoverageValue> {
-        val bound = Bound(LegacyVerification.ONE_HUNDRED, BigDecimal.ZERO, coverageUnit, aggregationForGroup)
-        val rule = Rule("", groupBy, listOf(bound))
-
-        val violations = verify(listOf(rule), tempDir, filters, binaryReports, classfileDirs)
-        val result = ArrayList<CoverageValue>()
+        val query = CoverageQuery(groupBy, coverageUnit, aggregationForGroup)
+        return evalCoverage(listOf(query), tempDir, filters, binaryReports, classfileDirs, parallelism, cache).getValue(query)
+    }
 
-        for (violation in violations) {
-            for (boundViolation in violation.violations) {
-                result.add(CoverageValue(boundViolation.entityName, boundViolation.value))
-            }
+    /**
+     * Get coverage values from binary reports for several queries at once.
+     *
+     * Binary reports are read and class-files are analyzed once for all queries.
+     *
+     * @param queries       Requested kinds of coverage values
+     * @param tempDir       Directory to create temporary files
+     * @param filters       Filters to limit the classes that will be placed into result coverage
+     * @param binaryReports List of coverage binary reports in IC format, uncompressed or compressed with GZIP
+     * @param classfileDirs List of root directories for compiled class-files
+     * @param parallelism   Number of threads to analyze class-files, class-files directories are analyzed in parallel if it is greater than `1`
+     * @param cache         Cache of class-files analysis, `null` if class-files should always be analyzed
+     * @return Coverage values for each query.
+     */
+    @JvmOverloads
+    public fun evalCoverage(
+        queries: List<CoverageQuery>,
+        tempDir: File,
+        filters: ClassFilters,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        parallelism: Int = 1,
+        cache: AnalysisCache? = null
+    ): Map<CoverageQuery, List<CoverageValue>> {
+        openSession(tempDir, binaryReports, classfileDirs, emptyList(), filters, parallelism, cache).use { session ->
+            return session.evalCoverage(queries)
         }
+    }
 
-        return result
+    private inline fun withTempDir(block: (File) -> Unit) {
+        val tempDir = Files.createTempDirectory("kover-report").toFile()
+        try {
+            block(tempDir)
+        } finally {
+            tempDir.deleteRecursively()
+        }
     }
 
     public fun violationMessage(violations: List<RuleViolations>): String {
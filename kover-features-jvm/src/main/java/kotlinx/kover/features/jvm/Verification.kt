@@ -79,6 +79,11 @@ public data class Bound(
  */
 public data class Rule(val name: String, val groupBy: GroupingBy, val bounds: List<Bound>)
 
+/**
+ * Verification [rule] that is checked only for classes accepted by its own [filters].
+ */
+public data class FilteredRule(val rule: Rule, val filters: ClassFilters)
+
 /**
  * Violation of verification rule.
  */
@@ -0,0 +1,403 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import kotlinx.kover.features.jvm.ClassFilters
+import java.io.ByteArrayOutputStream
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.OutputStream
+import java.io.RandomAccessFile
+import java.nio.charset.Charset
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+/**
+ * Offline instrumentation of class-files packed in JAR or ZIP archive, which writes the instrumented archive in one pass.
+ *
+ * Matching class-files are decompressed, instrumented in several threads and compressed again.
+ * All other entries are copied in their compressed form, without decompression and recompression.
+ *
+ * Signature files of signed JARs are not copied if at least one class-file is instrumented, because the signature becomes invalid.
+ *
+ * Data before the archive, e.g. the launcher script of a self-executing JAR, is copied as is.
+ */
+internal object ArchiveInstrumentation {
+    private const val LOCAL_HEADER_SIGNATURE = 0x04034b50L
+    private const val CENTRAL_HEADER_SIGNATURE = 0x02014b50L
+    private const val END_SIGNATURE = 0x06054b50L
+
+    private const val LOCAL_HEADER_SIZE = 30
+    private const val CENTRAL_HEADER_SIZE = 46
+    private const val END_SIZE = 22
+    private const val MAX_COMMENT_SIZE = 0xFFFF
+
+    private const val ZIP64_MARKER = 0xFFFFFFFFL
+    private const val ZIP64_ENTRIES_MARKER = 0xFFFF
+    private const val DATA_DESCRIPTOR_FLAG = 0x08
+    private const val UTF8_NAME_FLAG = 0x800
+    private const val DEFLATE_VERSION = 20
+
+    /**
+     * Number of entries that are instrumented in parallel before they are written, limits the memory consumption.
+     */
+    private const val BATCH_SIZE = 512
+
+    /**
+     * Charset of entry names without [UTF8_NAME_FLAG], according to the ZIP specification.
+     */
+    private val LEGACY_NAME_CHARSET: Charset = if (Charset.isSupported("IBM437")) Charset.forName("IBM437") else Charsets.ISO_8859_1
+
+    fun instrument(resultArchive: File, originalArchive: File, filters: ClassFilters, countHits: Boolean, parallelism: Int) {
+        val matcher = ParallelInstrumentation.ClassNameMatcher(filters)
+        val instrumenter = OfflineInstrumenterImpl(countHits)
+        resultArchive.absoluteFile.parentFile?.mkdirs()
+
+        RandomAccessFile(originalArchive, "r").use { input ->
+            val directory = readDirectory(input, originalArchive)
+            if (directory == null) {
+                // ZIP64 archives are rare for class-files, so they are processed by the standard library with recompression
+                instrumentWithRecompression(resultArchive, originalArchive, matcher, instrumenter)
+                return
+            }
+
+            val instrumentedNames = directory.entries.map { it.name }.filter { name -> name.isInstrumented(matcher) }.toSet()
+            val entries = if (instrumentedNames.isEmpty()) {
+                directory.entries
+            } else {
+                directory.entries.filterNot { it.name.isSignatureFile() }
+            }
+
+            // entries are looked up by names decoded in the same way as in the central directory
+            ZipFile(originalArchive, LEGACY_NAME_CHARSET).use { zip ->
+                ArchiveWriter(resultArchive.outputStream().buffered(), directory.firstEntryOffset).use { writer ->
+                    writer.copyPreamble(input, directory.archiveStart + directory.firstEntryOffset)
+                    ConDySettings.withDisabledConDy {
+                        entries.chunked(BATCH_SIZE).forEach { batch ->
+                            val instrumented = runParallel(batch, parallelism) { entry ->
+                                if (entry.name in instrumentedNames) {
+                                    val bytes = zip.getInputStream(zip.getEntry(entry.name)).use { stream ->
+                                        instrumenter.instrument(stream, entry.name)
+                                    }
+                                    CompressedData.deflate(bytes)
+                                } else {
+                                    null
+                                }
+                            }
+
+                            batch.forEachIndexed { index, entry ->
+                                val data = instrumented[index]
+                                if (data == null) {
+                                    writer.copy(entry, input, directory.archiveStart)
+                                } else {
+                                    writer.write(entry, data)
+                                }
+                            }
+                        }
+                    }
+                    writer.finish(directory.comment)
+                }
+            }
+        }
+    }
+
+    private fun instrumentWithRecompression(
+        resultArchive: File,
+        originalArchive: File,
+        matcher: ParallelInstrumentation.ClassNameMatcher,
+        instrumenter: OfflineInstrumenterImpl
+    ) {
+        val instrumentedNames = ZipFile(originalArchive, LEGACY_NAME_CHARSET).use { zip ->
+            zip.entries().asSequence().map { it.name }.filter { name -> name.isInstrumented(matcher) }.toSet()
+        }
+
+        ZipInputStream(originalArchive.inputStream().buffered(), LEGACY_NAME_CHARSET).use { input ->
+            ZipOutputStream(resultArchive.outputStream().buffered()).use { output ->
+                while (true) {
+                    val entry = input.nextEntry ?: break
+                    if (instrumentedNames.isNotEmpty() && entry.name.isSignatureFile()) continue
+
+                    output.putNextEntry(ZipEntry(entry.name).also { it.time = entry.time })
+                    if (entry.name in instrumentedNames) {
+                        // the entry is read in advance so that the instrumenter does not affect the archive stream
+                        output.write(instrumenter.instrument(input.readBytes().inputStream(), entry.name))
+                    } else {
+                        input.copyTo(output)
+                    }
+                    output.closeEntry()
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the central directory of the archive, `null` if the archive is in ZIP64 format.
+     *
+     * Offsets in the archive are relative to its beginning, which is not the beginning of the file if there is some data before the archive.
+     * The beginning is determined by the actual position of the central directory, which immediately precedes the end record.
+     */
+    private fun readDirectory(input: RandomAccessFile, archive: File): ArchiveDirectory? {
+        val length = input.length()
+        val tailSize = minOf(length, (END_SIZE + MAX_COMMENT_SIZE).toLong()).toInt()
+        val tail = ByteArray(tailSize)
+        input.seek(length - tailSize)
+        input.readFully(tail)
+
+        var endIndex = tailSize - END_SIZE
+        while (endIndex >= 0 && tail.u32(endIndex) != END_SIGNATURE) {
+            endIndex--
+        }
+        if (endIndex < 0) throw IOException("File '${archive.path}' is not a ZIP archive")
+
+        val totalEntries = tail.u16(endIndex + 10)
+        val directorySize = tail.u32(endIndex + 12)
+        val directoryOffset = tail.u32(endIndex + 16)
+        val commentSize = tail.u16(endIndex + 20)
+        if (totalEntries == ZIP64_ENTRIES_MARKER || directorySize == ZIP64_MARKER || directoryOffset == ZIP64_MARKER) {
+            return null
+        }
+        val comment = tail.copyOfRange(endIndex + END_SIZE, minOf(tailSize, endIndex + END_SIZE + commentSize))
+
+        val directoryPosition = length - tailSize + endIndex - directorySize
+        val archiveStart = directoryPosition - directoryOffset
+        if (archiveStart < 0) throw IOException("Invalid end of central directory in ZIP archive '${archive.path}'")
+
+        val directory = ByteArray(directorySize.toInt())
+        input.seek(directoryPosition)
+        input.readFully(directory)
+
+        val entries = ArrayList<CentralEntry>(totalEntries)
+        var offset = 0
+        repeat(totalEntries) {
+            if (directory.u32(offset) != CENTRAL_HEADER_SIGNATURE) {
+                throw IOException("Invalid central directory in ZIP archive '${archive.path}'")
+            }
+            val nameSize = directory.u16(offset + 28)
+            val extraSize = directory.u16(offset + 30)
+            val entryCommentSize = directory.u16(offset + 32)
+            val end = offset + CENTRAL_HEADER_SIZE + nameSize + extraSize + entryCommentSize
+
+            val entry = CentralEntry(directory.copyOfRange(offset, end), nameSize)
+            if (entry.compressedSize == ZIP64_MARKER || entry.size == ZIP64_MARKER || entry.localOffset == ZIP64_MARKER) {
+                return null
+            }
+            entries += entry
+            offset = end
+        }
+        val firstEntryOffset = entries.minOfOrNull { it.localOffset } ?: directoryOffset
+        return ArchiveDirectory(entries, comment, archiveStart, firstEntryOffset)
+    }
+
+    private fun String.isInstrumented(matcher: ParallelInstrumentation.ClassNameMatcher): Boolean {
+        val className = with(ParallelInstrumentation) { toClassName() } ?: return false
+        return matcher.matches(className)
+    }
+
+    private fun String.isSignatureFile(): Boolean {
+        if (!startsWith("META-INF/") || indexOf('/', "META-INF/".length) >= 0) return false
+        val extension = substringAfterLast('.', "").uppercase()
+        return extension == "SF" || extension == "RSA" || extension == "DSA" || extension == "EC"
+    }
+
+    /**
+     * Central directory of the archive which begins at [archiveStart] position of the file.
+     *
+     * [firstEntryOffset] is the offset of the first entry relative to the beginning of the archive.
+     */
+    private class ArchiveDirectory(val entries: List<CentralEntry>, val comment: ByteArray, val archiveStart: Long, val firstEntryOffset: Long)
+
+    /**
+     * Entry of the central directory, [header] contains the fixed part, the name, the extra field and the comment.
+     */
+    private class CentralEntry(val header: ByteArray, nameSize: Int) {
+        val name: String = String(header, CENTRAL_HEADER_SIZE, nameSize, if (header.u16(8) and UTF8_NAME_FLAG != 0) Charsets.UTF_8 else LEGACY_NAME_CHARSET)
+        val nameBytes: ByteArray = header.copyOfRange(CENTRAL_HEADER_SIZE, CENTRAL_HEADER_SIZE + nameSize)
+
+        val versionNeeded: Int get() = header.u16(6)
+        val flags: Int get() = header.u16(8)
+        val method: Int get() = header.u16(10)
+        val time: Int get() = header.u16(12)
+        val date: Int get() = header.u16(14)
+        val crc: Long get() = header.u32(16)
+        val compressedSize: Long get() = header.u32(20)
+        val size: Long get() = header.u32(24)
+        val localOffset: Long get() = header.u32(42)
+    }
+
+    private class CompressedData(val bytes: ByteArray, val compressedSize: Int, val size: Int, val crc: Long) {
+        companion object {
+            fun deflate(original: ByteArray): CompressedData {
+                val crc = CRC32()
+                crc.update(original)
+
+                val deflater = Deflater(Deflater.DEFAULT_COMPRESSION, true)
+                try {
+                    deflater.setInput(original)
+                    deflater.finish()
+                    val output = ByteArrayOutputStream(original.size / 2 + 64)
+                    val buffer = ByteArray(8192)
+                    while (!deflater.finished()) {
+                        val count = deflater.deflate(buffer)
+                        output.write(buffer, 0, count)
+                    }
+                    return CompressedData(output.toByteArray(), output.size(), original.size, crc.value)
+                } finally {
+                    deflater.end()
+                }
+            }
+        }
+    }
+
+    /**
+     * Writer of the archive, [position] is the offset relative to the beginning of the archive, the same as in the original archive.
+     */
+    private class ArchiveWriter(private val output: OutputStream, private var position: Long) : Closeable {
+        private val directory = ByteArrayOutputStream()
+        private var count = 0
+
+        /**
+         * Copy the first [size] bytes of [input] file as is: the data before the archive and before its first entry.
+         */
+        fun copyPreamble(input: RandomAccessFile, size: Long) {
+            input.seek(0)
+            input.copyTo(output, size, "preamble")
+        }
+
+        /**
+         * Copy [entry] from [input] archive, which begins at [archiveStart] position of the file, as is.
+         */
+        fun copy(entry: CentralEntry, input: RandomAccessFile, archiveStart: Long) {
+            val localHeader = ByteArray(LOCAL_HEADER_SIZE)
+            input.seek(archiveStart + entry.localOffset)
+            input.readFully(localHeader)
+            if (localHeader.u32(0) != LOCAL_HEADER_SIGNATURE) {
+                throw IOException("Invalid local header of ZIP entry '${entry.name}'")
+            }
+            val localExtra = ByteArray(localHeader.u16(28))
+            input.seek(archiveStart + entry.localOffset + LOCAL_HEADER_SIZE + localHeader.u16(26))
+            input.readFully(localExtra)
+
+            writeEntry(entry, entry.versionNeeded, entry.method, entry.crc, entry.compressedSize, entry.size, localExtra)
+
+            // the input is positioned at the beginning of the compressed data
+            input.copyTo(output, entry.compressedSize, "ZIP entry '${entry.name}'")
+            position += entry.compressedSize
+        }
+
+        /**
+         * Write new [data] for [entry].
+         */
+        fun write(entry: CentralEntry, data: CompressedData) {
+            val versionNeeded = maxOf(entry.versionNeeded, DEFLATE_VERSION)
+            writeEntry(entry, versionNeeded, ZipEntry.DEFLATED, data.crc, data.compressedSize.toLong(), data.size.toLong(), ByteArray(0))
+            output.write(data.bytes, 0, data.compressedSize)
+            position += data.compressedSize
+        }
+
+        private fun writeEntry(
+            entry: CentralEntry,
+            versionNeeded: Int,
+            method: Int,
+            crc: Long,
+            compressedSize: Long,
+            size: Long,
+            localExtra: ByteArray
+        ) {
+            val offset = position
+            if (offset >= ZIP64_MARKER || count == ZIP64_ENTRIES_MARKER) {
+                throw IOException("Instrumented archive is too large, ZIP64 format is not supported")
+            }
+            // sizes and CRC are known in advance, so data descriptor is not written
+            val flags = entry.flags and DATA_DESCRIPTOR_FLAG.inv()
+
+            val local = ByteArray(LOCAL_HEADER_SIZE)
+            local.setU32(0, LOCAL_HEADER_SIGNATURE)
+            local.setU16(4, versionNeeded)
+            local.setU16(6, flags)
+            local.setU16(8, method)
+            local.setU16(10, entry.time)
+            local.setU16(12, entry.date)
+            local.setU32(14, crc)
+            local.setU32(18, compressedSize)
+            local.setU32(22, size)
+            local.setU16(26, entry.nameBytes.size)
+            local.setU16(28, localExtra.size)
+            output.write(local)
+            output.write(entry.nameBytes)
+            output.write(localExtra)
+            position += LOCAL_HEADER_SIZE + entry.nameBytes.size + localExtra.size
+
+            val central = entry.header.copyOf()
+            central.setU16(6, versionNeeded)
+            central.setU16(8, flags)
+            central.setU16(10, method)
+            central.setU32(16, crc)
+            central.setU32(20, compressedSize)
+            central.setU32(24, size)
+            central.setU32(42, offset)
+            directory.write(central)
+            count++
+        }
+
+        /**
+         * Write the central directory and the end of the archive.
+         */
+        fun finish(comment: ByteArray) {
+            if (position >= ZIP64_MARKER) {
+                throw IOException("Instrumented archive is too large, ZIP64 format is not supported")
+            }
+            val directoryOffset = position
+            directory.writeTo(output)
+
+            val end = ByteArray(END_SIZE)
+            end.setU32(0, END_SIGNATURE)
+            end.setU16(8, count)
+            end.setU16(10, count)
+            end.setU32(12, directory.size().toLong())
+            end.setU32(16, directoryOffset)
+            end.setU16(20, comment.size)
+            output.write(end)
+            output.write(comment)
+        }
+
+        override fun close() {
+            output.close()
+        }
+    }
+}
+
+private fun RandomAccessFile.copyTo(output: OutputStream, size: Long, description: String) {
+    val buffer = ByteArray(8192)
+    var remaining = size
+    while (remaining > 0) {
+        val read = read(buffer, 0, minOf(buffer.size.toLong(), remaining).toInt())
+        if (read < 0) throw IOException("Unexpected end of $description")
+        output.write(buffer, 0, read)
+        remaining -= read
+    }
+}
+
+private fun ByteArray.u16(index: Int): Int {
+    return (this[index].toInt() and 0xFF) or ((this[index + 1].toInt() and 0xFF) shl 8)
+}
+
+private fun ByteArray.u32(index: Int): Long {
+    return u16(index).toLong() or (u16(index + 2).toLong() shl 16)
+}
+
+private fun ByteArray.setU16(index: Int, value: Int) {
+    this[index] = value.toByte()
+    this[index + 1] = (value shr 8).toByte()
+}
+
+private fun ByteArray.setU32(index: Int, value: Long) {
+    setU16(index, (value and 0xFFFF).toInt())
+    setU16(index + 2, ((value shr 16) and 0xFFFF).toInt())
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import com.intellij.rt.coverage.aggregate.api.AggregatorApi
+import com.intellij.rt.coverage.aggregate.api.Request
+import com.intellij.rt.coverage.report.api.Filters
+import com.intellij.rt.coverage.util.ProjectDataLoader
+import kotlinx.kover.features.jvm.AnalysisCache
+import kotlinx.kover.features.jvm.ClassFilters
+import kotlinx.kover.features.jvm.KoverFeatures
+import java.io.File
+import java.io.IOException
+import java.nio.file.FileAlreadyExistsException
+import java.nio.file.FileSystemException
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.regex.Pattern
+
+/**
+ * Aggregation that reuses the analysis of class-files stored in [AnalysisCache].
+ *
+ * For each class-file, the structure of its class (lines, branches, instructions and source file, without hits)
+ * is stored as a separate IC report.
+ * The cache key is a hash of the Kover version, the path of the class-file relative to its class-files directory and its content,
+ * so only changed class-files are analyzed again, and the entries do not depend on the filters.
+ *
+ * The hits from binary reports are merged with the cached structures without class-files analysis,
+ * the class filters are applied at this step.
+ */
+internal object CachedAnalysis {
+    private const val ENTRY_EXTENSION = ".ic"
+    private const val TEMP_PREFIX = "tmp-"
+
+    /**
+     * Maximum number of class-files analyzed by IntelliJ aggregator at once.
+     *
+     * Each class in the batch has its own aggregation request, so the larger the batch, the more filters are checked for each class.
+     */
+    private const val ANALYSIS_BATCH_SIZE = 256
+
+    /**
+     * Check whether classes accepted by [filters] may be determined from the cached structures.
+     *
+     * Annotations and inheritance filters are applied to methods and the class hierarchy during the class-files analysis,
+     * and merging hits from binary reports afterward may restore the excluded code, so such filters are not cached.
+     */
+    fun isApplicable(filters: ClassFilters): Boolean {
+        return filters.includeAnnotation.isEmpty() && filters.excludeAnnotation.isEmpty()
+                && filters.includeInheritedFrom.isEmpty() && filters.excludeInheritedFrom.isEmpty()
+    }
+
+    fun aggregate(
+        cache: AnalysisCache,
+        requests: List<ParallelAggregation.AggregationRequest>,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        parallelism: Int
+    ) {
+        cache.directory.mkdirs()
+
+        val classFiles = classfileDirs.flatMap { dir -> dir.classFiles() }
+        val entries = runParallel(classFiles, parallelism) { classFile ->
+            cache.entryFile(entryKey(KoverFeatures.version, classFile.path, classFile.file.readBytes()))
+        }
+        cache.analyzeMissing(classFiles, entries, parallelism)
+
+        val pinDir = Files.createTempDirectory(cache.directory.toPath(), TEMP_PREFIX).toFile()
+        try {
+            val structures = cache.pin(classFiles, entries, pinDir, parallelism)
+            aggregate(requests, structures, binaryReports, classFiles)
+        } finally {
+            pinDir.deleteRecursively()
+        }
+
+        cache.evict()
+    }
+
+    private fun aggregate(
+        requests: List<ParallelAggregation.AggregationRequest>,
+        structures: List<File>,
+        binaryReports: List<File>,
+        classFiles: List<ClassFile>
+    ) {
+        // binary reports may contain classes that are absent in class-files directories, e.g. test classes, they should be skipped
+        val absentClasses = binaryReports.classNames() - classFiles.mapTo(HashSet()) { it.className }
+        val absentFilter = if (absentClasses.isEmpty()) emptyList() else listOf(Pattern.compile(absentClasses.exactNamesToRegex()))
+
+        for (request in requests) {
+            val filters = Filters(
+                request.filters.includeClasses.toRegexp(),
+                request.filters.excludeClasses.toRegexp() + absentFilter,
+                emptyList(),
+                emptyList(),
+                emptyList(),
+                emptyList()
+            )
+            AggregatorApi.aggregate(listOf(Request(filters, request.ic, request.smap)), structures + binaryReports, emptyList())
+        }
+    }
+
+    /**
+     * Analyze class-files which have no entries in the cache yet.
+     *
+     * Class-files are analyzed in batches, each class of a batch is written into its own entry by a separate request.
+     * Class-files with the same path from different directories are placed in different batches, so their classes are not mixed.
+     */
+    private fun AnalysisCache.analyzeMissing(classFiles: List<ClassFile>, entries: List<File>, parallelism: Int) {
+        val missing = classFiles.indices
+            .filter { index -> !entries[index].exists() }
+            .distinctBy { index -> entries[index] }
+
+        analyzeAll(missing.map { classFiles[it] }, missing.map { entries[it] }, parallelism)
+    }
+
+    /**
+     * Pin the entries used by the current aggregation in [pinDir], so they are not lost if another process evicts them from the cache.
+     *
+     * Entries are pinned by hard links, or copied if the file system does not support them.
+     * Entries evicted since [analyzeMissing] are analyzed again directly into [pinDir].
+     *
+     * @return pinned structures of the class-files with the code to measure.
+     */
+    private fun AnalysisCache.pin(classFiles: List<ClassFile>, entries: List<File>, pinDir: File, parallelism: Int): List<File> {
+        val unique = classFiles.indices.distinctBy { index -> entries[index] }
+        val pinned = unique.map { index -> pinDir.resolve(entries[index].name) }
+
+        val evicted = unique.indices.filter { i -> !entries[unique[i]].pinTo(pinned[i]) }
+        analyzeAll(evicted.map { classFiles[unique[it]] }, evicted.map { pinned[it] }, parallelism)
+
+        return pinned.filter { structure -> structure.length() > 0 }
+    }
+
+    /**
+     * Link or copy the entry to the [pinned] file.
+     *
+     * @return `false` if the entry does not exist.
+     */
+    private fun File.pinTo(pinned: File): Boolean {
+        return try {
+            Files.createLink(pinned.toPath(), toPath())
+            true
+        } catch (e: NoSuchFileException) {
+            false
+        } catch (e: UnsupportedOperationException) {
+            copyIfExists(pinned)
+        } catch (e: FileSystemException) {
+            // e.g. hard links are not permitted by the file system
+            copyIfExists(pinned)
+        }
+    }
+
+    private fun File.copyIfExists(pinned: File): Boolean {
+        return try {
+            Files.copy(toPath(), pinned.toPath())
+            true
+        } catch (e: NoSuchFileException) {
+            false
+        }
+    }
+
+    /**
+     * Analyze [classFiles] and write the structure of each class to the corresponding file of [targets].
+     */
+    private fun AnalysisCache.analyzeAll(classFiles: List<ClassFile>, targets: List<File>, parallelism: Int) {
+        val occurrences = HashMap<String, Int>()
+        val waves = classFiles.indices.groupBy { index ->
+            val occurrence = occurrences[classFiles[index].path] ?: 0
+            occurrences[classFiles[index].path] = occurrence + 1
+            occurrence
+        }
+        val batches = waves.values.flatMap { it.chunked(ANALYSIS_BATCH_SIZE) }
+
+        runParallel(batches, parallelism) { batch ->
+            analyze(batch.map { classFiles[it] }, batch.map { targets[it] })
+        }
+    }
+
+    private fun AnalysisCache.analyze(classFiles: List<ClassFile>, entries: List<File>) {
+        val tempDir = Files.createTempDirectory(directory.toPath(), TEMP_PREFIX).toFile()
+        try {
+            val root = tempDir.resolve("classes")
+            classFiles.forEach { classFile -> classFile.file.copyTo(root.resolve(classFile.path)) }
+
+            val structures = classFiles.indices.map { index -> tempDir.resolve("structure-$index$ENTRY_EXTENSION") }
+            val requests = classFiles.mapIndexed { index, classFile ->
+                val filters = Filters(listOf(Pattern.compile(Pattern.quote(classFile.className))), emptyList(), emptyList(), emptyList(), emptyList(), emptyList())
+                Request(filters, structures[index], tempDir.resolve("structure-$index.smap"))
+            }
+            AggregatorApi.aggregate(requests, emptyList(), listOf(root))
+
+            structures.forEachIndexed { index, structure ->
+                // an empty entry is written for class-files without the code to measure, e.g. `module-info.class`
+                if (!structure.exists()) structure.createNewFile()
+                entries[index].parentFile.mkdirs()
+                try {
+                    Files.move(structure.toPath(), entries[index].toPath(), StandardCopyOption.ATOMIC_MOVE)
+                } catch (e: FileAlreadyExistsException) {
+                    // entry was created concurrently by another process
+                } catch (e: IOException) {
+                    if (!entries[index].exists()) throw e
+                }
+            }
+        } finally {
+            tempDir.deleteRecursively()
+        }
+    }
+
+    /**
+     * Get the file of the cache entry with the [key] and mark it as recently used if it exists.
+     *
+     * Entries are grouped by the first characters of the key, so there are not too many files in one directory.
+     */
+    private fun AnalysisCache.entryFile(key: String): File {
+        val entry = directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_EXTENSION)
+        if (entry.exists()) {
+            entry.setLastModified(System.currentTimeMillis())
+        }
+        return entry
+    }
+
+    /**
+     * Remove entries which were not used for too long, then the least recently used entries to fit in the maximum size.
+     */
+    private fun AnalysisCache.evict() {
+        val now = System.currentTimeMillis()
+        val groups = directory.listFiles()?.filter { it.isDirectory } ?: return
+
+        // temporary directories of interrupted analyses are removed only after the maximum age, they may be in use by other processes
+        groups.filter { it.name.startsWith(TEMP_PREFIX) && now - it.lastModified() > maxAgeMillis }.forEach { it.deleteRecursively() }
+
+        val entries = groups.filter { !it.name.startsWith(TEMP_PREFIX) }
+            .flatMap { group -> group.listFiles()?.filter { it.isFile } ?: emptyList() }
+            .sortedBy { it.lastModified() }
+
+        var totalSize = 0L
+        val alive = ArrayList<File>()
+        for (entry in entries) {
+            if (now - entry.lastModified() > maxAgeMillis) {
+                entry.delete()
+            } else {
+                totalSize += entry.length()
+                alive += entry
+            }
+        }
+
+        for (entry in alive) {
+            if (totalSize <= maxSizeBytes) break
+            totalSize -= entry.length()
+            entry.delete()
+        }
+
+        groups.forEach { group -> if (group.list()?.isEmpty() == true) group.delete() }
+    }
+
+    /**
+     * Key of the cache entry of the class-file with the [path] relative to its class-files directory and [content].
+     */
+    internal fun entryKey(version: String, path: String, content: ByteArray): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update(version.toByteArray())
+        digest.update(0)
+        digest.update(path.toByteArray())
+        digest.update(0)
+        digest.update(content)
+        return digest.digest().joinToString("") { byte -> "%02x".format(byte) }
+    }
+
+    /**
+     * Class-file [file] with the [path] relative to its class-files directory.
+     */
+    private class ClassFile(val file: File, val path: String) {
+        /**
+         * Name of the class, determined by the path of the class-file in the same way as by class loaders.
+         */
+        val className: String = path.removeSuffix(".class").replace('/', '.')
+    }
+
+    private fun File.classFiles(): List<ClassFile> {
+        return walkTopDown()
+            .filter { file -> file.isFile && file.name.endsWith(".class") }
+            .map { file -> ClassFile(file, file.relativeTo(this).invariantSeparatorsPath) }
+            .sortedBy { it.path }
+            .toList()
+    }
+
+    private fun List<File>.classNames(): Set<String> {
+        val names = HashSet<String>()
+        forEach { report -> names += ProjectDataLoader.load(report).classesCollection.map { it.name } }
+        return names
+    }
+}
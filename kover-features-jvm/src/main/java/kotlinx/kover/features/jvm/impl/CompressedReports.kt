@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import java.io.File
+import java.nio.file.Files
+import java.util.zip.GZIPInputStream
+
+/**
+ * Support of compressed binary reports.
+ *
+ * The offline runtime may save binary reports in IC format compressed with GZIP.
+ * Such reports are recognized by the GZIP magic number at the beginning of the file,
+ * so compressed and uncompressed reports can be passed together in any order.
+ */
+internal object CompressedReports {
+    private const val GZIP_MAGIC_FIRST_BYTE = 0x1f
+    private const val GZIP_MAGIC_SECOND_BYTE = 0x8b
+
+    /**
+     * Call [block] with [binaryReports] in which compressed reports are replaced with their decompressed copies.
+     *
+     * Decompressed copies are written to a subdirectory of [tempDir] and deleted after [block] is completed.
+     * Uncompressed reports are passed as is, without copying.
+     */
+    inline fun <T> withDecompressed(binaryReports: List<File>, tempDir: File, block: (List<File>) -> T): T {
+        tempDir.mkdirs()
+        val decompressedDir = Files.createTempDirectory(tempDir.toPath(), "decompressed").toFile()
+        try {
+            return block(binaryReports.mapIndexed { index, report ->
+                // index prevents name clashes of reports from different directories
+                decompress(report, decompressedDir.resolve("$index-${report.name}"))
+            })
+        } finally {
+            decompressedDir.deleteRecursively()
+        }
+    }
+
+    /**
+     * Decompress [report] to [target] if it is compressed.
+     *
+     * The report is opened only once: the magic number is read from the same stream that is decompressed.
+     *
+     * @return [target] if [report] is compressed, [report] otherwise.
+     */
+    fun decompress(report: File, target: File): File {
+        if (!report.isFile) return report
+
+        report.inputStream().buffered().use { input ->
+            input.mark(2)
+            val compressed = input.read() == GZIP_MAGIC_FIRST_BYTE && input.read() == GZIP_MAGIC_SECOND_BYTE
+            if (!compressed) return report
+
+            input.reset()
+            GZIPInputStream(input).use { gzip ->
+                target.outputStream().use { output -> gzip.copyTo(output) }
+            }
+        }
+        return target
+    }
+}
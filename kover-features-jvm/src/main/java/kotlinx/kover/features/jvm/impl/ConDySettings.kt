@@ -7,30 +7,61 @@ package kotlinx.kover.features.jvm.impl
 
 /**
  * Internal class to control JVM ConDy settings.
+ *
+ * The setting is a global system property, so it is disabled while at least one instrumentation is in progress
+ * and restored only after the last concurrent instrumentation is completed.
  */
 internal object ConDySettings {
     private const val CONDY_SYSTEM_PARAM_NAME = "coverage.condy.enable"
 
+    private val lock = Any()
+
+    private var activeInstrumentations = 0
+
+    private var previousValue: String? = null
+
     /**
-     * Disable JVM ConDy during instrumentation.
+     * Execute [block] with disabled JVM ConDy.
      *
-     * @return previous value of ConDy setting
+     * Can be safely called from several threads at the same time.
      */
-    fun disableConDy(): String? {
-        // disable ConDy for offline instrumentations
-        return System.setProperty(CONDY_SYSTEM_PARAM_NAME, "false")
+    inline fun <T> withDisabledConDy(block: () -> T): T {
+        disableConDy()
+        try {
+            return block()
+        } finally {
+            restoreConDy()
+        }
     }
 
     /**
-     * Restore previous value of JVM ConDy setting.
+     * Disable JVM ConDy during instrumentation.
      *
-     * Returns prevValue new setting value.
+     * Each call must be paired with a call of [restoreConDy].
+     */
+    fun disableConDy() {
+        synchronized(lock) {
+            if (activeInstrumentations++ == 0) {
+                // disable ConDy for offline instrumentations
+                previousValue = System.setProperty(CONDY_SYSTEM_PARAM_NAME, "false")
+            }
+        }
+    }
+
+    /**
+     * Restore previous value of JVM ConDy setting if there are no more instrumentations in progress.
      */
-    fun restoreConDy(prevValue: String?) {
-        if (prevValue == null) {
-            System.clearProperty(CONDY_SYSTEM_PARAM_NAME)
-        } else {
-            System.setProperty(CONDY_SYSTEM_PARAM_NAME, prevValue)
+    fun restoreConDy() {
+        synchronized(lock) {
+            if (--activeInstrumentations == 0) {
+                val prevValue = previousValue
+                previousValue = null
+                if (prevValue == null) {
+                    System.clearProperty(CONDY_SYSTEM_PARAM_NAME)
+                } else {
+                    System.setProperty(CONDY_SYSTEM_PARAM_NAME, prevValue)
+                }
+            }
         }
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import com.intellij.rt.coverage.data.ClassData
+import com.intellij.rt.coverage.data.LineData
+import com.intellij.rt.coverage.data.ProjectData
+import com.intellij.rt.coverage.data.instructions.LineInstructions
+import kotlinx.kover.features.jvm.*
+import java.math.BigDecimal
+import java.math.RoundingMode
+import java.util.*
+
+/**
+ * Calculation of coverage counters directly from the analyzed project data.
+ *
+ * Counters of all classes and methods are calculated in one pass, on the first request.
+ * Entities in results are sorted by name, to get stable order.
+ *
+ * Values are the same as those checked by the IntelliJ verifier: classes without lines are present with zero counters,
+ * the application entity is present even if there are no classes, and percentages are not calculated for zero totals.
+ */
+internal class CoverageCalculator(private val projectData: ProjectData) {
+    private val classes: List<ClassCounters> by lazy { calculateClasses() }
+
+    fun coverage(groupBy: GroupingBy): List<EntityCoverage> {
+        return when (groupBy) {
+            GroupingBy.APPLICATION -> listOf(classes.sum(null))
+            GroupingBy.CLASS -> classes.map { it.counters }
+            GroupingBy.PACKAGE -> {
+                // TreeMap is using for getting stable order in result List
+                val byPackage = TreeMap<String, MutableList<ClassCounters>>()
+                classes.forEach { classCounters ->
+                    byPackage.getOrPut(classCounters.packageName) { ArrayList() }.add(classCounters)
+                }
+                byPackage.map { (packageName, packageClasses) -> packageClasses.sum(packageName) }
+            }
+        }
+    }
+
+    fun methods(): List<MethodCoverage> {
+        return classes.flatMap { it.methods }
+    }
+
+    fun evalCoverage(query: CoverageQuery): List<CoverageValue> {
+        return coverage(query.groupBy).mapNotNull { entity ->
+            val value = entity.counter(query.coverageUnit).value(query.aggregationForGroup) ?: return@mapNotNull null
+            CoverageValue(entity.entityName, value)
+        }
+    }
+
+    private fun calculateClasses(): List<ClassCounters> {
+        val instructions = projectData.instructions
+
+        return projectData.classesCollection
+            .sortedBy { classData -> classData.name }
+            .map { classData -> calculateClass(classData, instructions[classData.name]?.getlines()) }
+    }
+
+    private fun calculateClass(classData: ClassData, lineInstructions: Array<LineInstructions?>?): ClassCounters {
+        val className = classData.name
+        val classCounter = MutableCounters()
+        // TreeMap is using for getting stable order of methods
+        val methodCounters = TreeMap<String, MutableCounters>()
+
+        classData.lines.forEach { line ->
+            val lineData = line as? LineData ?: return@forEach
+
+            val lineCounters = MutableCounters()
+            lineCounters.add(lineData, lineInstructions)
+
+            classCounter.add(lineCounters)
+            val signature = lineData.methodSignature
+            if (signature != null) {
+                methodCounters.getOrPut(signature) { MutableCounters() }.add(lineCounters)
+            }
+        }
+
+        val methods = methodCounters.map { (signature, counters) ->
+            MethodCoverage(className, signature, counters.lines(), counters.branches(), counters.instructions())
+        }
+        return ClassCounters(className.packageName(), classCounter.toEntity(className), methods)
+    }
+
+    private fun List<ClassCounters>.sum(entityName: String?): EntityCoverage {
+        val result = MutableCounters()
+        forEach { classCounters -> result.add(classCounters.counters) }
+        return result.toEntity(entityName)
+    }
+
+    private fun String.packageName(): String {
+        val index = lastIndexOf('.')
+        return if (index < 0) "" else substring(0, index)
+    }
+
+    private class ClassCounters(
+        val packageName: String,
+        val counters: EntityCoverage,
+        val methods: List<MethodCoverage>
+    )
+
+    private class MutableCounters {
+        var coveredLines: Int = 0
+        var missedLines: Int = 0
+        var coveredBranches: Int = 0
+        var missedBranches: Int = 0
+        var coveredInstructions: Int = 0
+        var missedInstructions: Int = 0
+
+        fun add(lineData: LineData, lineInstructions: Array<LineInstructions?>?) {
+            if (lineData.hits > 0) coveredLines++ else missedLines++
+
+            val branchData = lineData.branchData
+            if (branchData != null) {
+                coveredBranches += branchData.coveredBranches
+                missedBranches += branchData.totalBranches - branchData.coveredBranches
+            }
+
+            val instructions = lineInstructions?.getOrNull(lineData.lineNumber)
+            if (instructions != null) {
+                val instructionsData = instructions.getInstructionsData(lineData)
+                coveredInstructions += instructionsData.coveredBranches
+                missedInstructions += instructionsData.totalBranches - instructionsData.coveredBranches
+            }
+        }
+
+        fun add(other: MutableCounters) {
+            coveredLines += other.coveredLines
+            missedLines += other.missedLines
+            coveredBranches += other.coveredBranches
+            missedBranches += other.missedBranches
+            coveredInstructions += other.coveredInstructions
+            missedInstructions += other.missedInstructions
+        }
+
+        fun add(entity: EntityCoverage) {
+            coveredLines += entity.lines.covered
+            missedLines += entity.lines.missed
+            coveredBranches += entity.branches.covered
+            missedBranches += entity.branches.missed
+            coveredInstructions += entity.instructions.covered
+            missedInstructions += entity.instructions.missed
+        }
+
+        fun lines() = CoverageCounter(coveredLines, missedLines)
+        fun branches() = CoverageCounter(coveredBranches, missedBranches)
+        fun instructions() = CoverageCounter(coveredInstructions, missedInstructions)
+
+        fun toEntity(entityName: String?) = EntityCoverage(entityName, lines(), branches(), instructions())
+    }
+}
+
+internal fun EntityCoverage.counter(unit: CoverageUnit): CoverageCounter {
+    return when (unit) {
+        CoverageUnit.LINE -> lines
+        CoverageUnit.INSTRUCTION -> instructions
+        CoverageUnit.BRANCH -> branches
+    }
+}
+
+/**
+ * Get value of the counter for given aggregation type, percentages are rounded to 4 decimal places.
+ *
+ * @return value or `null` if the percentage cannot be calculated because there are no code units of this type
+ */
+internal fun CoverageCounter.value(aggregation: AggregationType): BigDecimal? {
+    val total = covered + missed
+    return when (aggregation) {
+        AggregationType.COVERED_COUNT -> BigDecimal(covered)
+        AggregationType.MISSED_COUNT -> BigDecimal(missed)
+        AggregationType.COVERED_PERCENTAGE -> if (total == 0) null else percentage(covered, total)
+        AggregationType.MISSED_PERCENTAGE -> if (total == 0) null else percentage(missed, total)
+    }
+}
+
+private fun percentage(value: Int, total: Int): BigDecimal {
+    return BigDecimal(value).divide(BigDecimal(total), 6, RoundingMode.HALF_UP).multiply(LegacyVerification.ONE_HUNDRED)
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import com.intellij.rt.coverage.util.ProjectDataLoader
+import kotlinx.kover.features.jvm.*
+import java.io.File
+
+/**
+ * Implementation of [CoverageSession].
+ *
+ * Binary reports and class-files are aggregated into single IC report, which already contains all classes of the application.
+ * Therefore, reports are generated without class-files directories, and no re-analysis is performed.
+ */
+internal class CoverageSessionImpl private constructor(
+    private val workDir: File,
+    private val sourceDirs: List<File>
+) : CoverageSession {
+    private val ic: File = workDir.resolve("session.ic")
+    private val smap: File = workDir.resolve("session.smap")
+
+    private var closed: Boolean = false
+
+    private val calculator: CoverageCalculator by lazy { CoverageCalculator(ProjectDataLoader.load(ic)) }
+
+    override fun generateXmlReport(xmlFile: File, title: String) {
+        checkNotClosed()
+        Reports.xml(xmlFile, title, listOf(ic), emptyList(), sourceDirs, acceptAllFilters)
+    }
+
+    override fun generateHtmlReport(htmlDir: File, charsetName: String?, title: String) {
+        checkNotClosed()
+        Reports.html(htmlDir, title, charsetName, listOf(ic), emptyList(), sourceDirs, acceptAllFilters)
+    }
+
+    override fun aggregateIc(icFile: File) {
+        checkNotClosed()
+        icFile.parentFile?.mkdirs()
+        ic.copyTo(icFile, overwrite = true)
+    }
+
+    override fun verify(rules: List<Rule>): List<RuleViolations> {
+        checkNotClosed()
+        return LegacyVerification.verifyAggregated(rules, ic)
+    }
+
+    override fun evalCoverage(
+        groupBy: GroupingBy,
+        coverageUnit: CoverageUnit,
+        aggregationForGroup: AggregationType
+    ): List<CoverageValue> {
+        checkNotClosed()
+        return calculator.evalCoverage(CoverageQuery(groupBy, coverageUnit, aggregationForGroup))
+    }
+
+    override fun evalCoverage(queries: List<CoverageQuery>): Map<CoverageQuery, List<CoverageValue>> {
+        checkNotClosed()
+        return queries.associateWith { query -> calculator.evalCoverage(query) }
+    }
+
+    override fun coverage(groupBy: GroupingBy): List<EntityCoverage> {
+        checkNotClosed()
+        return calculator.coverage(groupBy)
+    }
+
+    override fun methodsCoverage(): List<MethodCoverage> {
+        checkNotClosed()
+        return calculator.methods()
+    }
+
+    override fun close() {
+        if (closed) return
+        closed = true
+
+        ic.delete()
+        smap.delete()
+    }
+
+    private fun checkNotClosed() {
+        if (closed) {
+            throw IllegalStateException("Kover coverage session is already closed")
+        }
+    }
+
+    companion object {
+        fun open(
+            workDir: File,
+            binaryReports: List<File>,
+            classfileDirs: List<File>,
+            sourceDirs: List<File>,
+            filters: ClassFilters,
+            parallelism: Int,
+            cache: AnalysisCache?
+        ): CoverageSessionImpl {
+            workDir.mkdirs()
+            val session = CoverageSessionImpl(workDir, sourceDirs)
+
+            val request = ParallelAggregation.AggregationRequest(filters, session.ic, session.smap)
+            ParallelAggregation.aggregate(listOf(request), binaryReports, classfileDirs, workDir, parallelism, cache)
+
+            return session
+        }
+    }
+}
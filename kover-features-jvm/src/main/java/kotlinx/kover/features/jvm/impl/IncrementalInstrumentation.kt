@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import kotlinx.kover.features.jvm.ClassFilters
+import kotlinx.kover.features.jvm.KoverFeatures
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
+/**
+ * Offline instrumentation which processes only the files changed since the previous instrumentation into the same directory.
+ *
+ * The manifest with the content hashes of all processed original files is stored next to the result directory, see [manifestFile],
+ * together with the Kover version and the hash of the instrumentation settings.
+ * If the version or the settings have changed, all files are processed again.
+ */
+internal object IncrementalInstrumentation {
+    private const val MANIFEST_DIR_NAME = ".kover"
+    private const val MANIFEST_EXTENSION = ".manifest"
+
+    private const val VERSION_PREFIX = "version="
+    private const val SETTINGS_PREFIX = "settings="
+
+    /**
+     * Instrument added and changed class-files from [originalDirs] into [resultDir] and remove the outputs of the deleted files.
+     *
+     * Only name filters are supported, see [ParallelInstrumentation.isApplicable].
+     */
+    fun instrument(resultDir: File, originalDirs: List<File>, filters: ClassFilters, countHits: Boolean, parallelism: Int) {
+        val manifestFile = manifestFile(resultDir)
+        val settings = settingsHash(filters, countHits)
+        val previous = readManifest(manifestFile, settings)
+        // the manifest is written again only after successful instrumentation, so an interrupted run leads to a full instrumentation next time
+        manifestFile.delete()
+
+        val filesByPath = ParallelInstrumentation.collectFiles(originalDirs)
+        val hashes = runParallel(filesByPath.entries.toList(), parallelism) { (path, file) -> path to file.contentHash() }.toMap()
+
+        val changed = filesByPath.filterKeys { path ->
+            previous[path] != hashes[path] || !resultDir.resolve(path).exists()
+        }
+        previous.keys.filter { path -> path !in filesByPath }.forEach { path ->
+            resultDir.resolve(path).delete()
+        }
+
+        ParallelInstrumentation.instrumentFiles(resultDir, changed, filters, countHits, parallelism)
+
+        writeManifest(manifestFile, settings, hashes)
+    }
+
+    /**
+     * Remove the manifest of [resultDir], so the next incremental instrumentation will process all files.
+     */
+    fun invalidate(resultDir: File) {
+        manifestFile(resultDir).delete()
+    }
+
+    /**
+     * Get the manifest file of [resultDir].
+     *
+     * The manifest is stored outside [resultDir] as `.kover/<result-dir-name>.manifest` in its parent directory,
+     * so it is not packaged together with the instrumented class-files.
+     */
+    private fun manifestFile(resultDir: File): File {
+        val absolute = resultDir.absoluteFile
+        val parent = absolute.parentFile ?: absolute
+        return parent.resolve(MANIFEST_DIR_NAME).resolve(absolute.name + MANIFEST_EXTENSION)
+    }
+
+    /**
+     * Read hashes of the original files by their relative paths.
+     *
+     * If the manifest was written by another Kover version or with other settings, the hashes are empty,
+     * so all files are processed again, but the outputs of the deleted files are still removed.
+     */
+    private fun readManifest(manifestFile: File, settings: String): Map<String, String> {
+        if (!manifestFile.exists()) return emptyMap()
+
+        val lines = manifestFile.readLines()
+        if (lines.size < 2) return emptyMap()
+        val upToDate = lines[0] == VERSION_PREFIX + KoverFeatures.version && lines[1] == SETTINGS_PREFIX + settings
+
+        val hashes = HashMap<String, String>()
+        lines.drop(2).forEach { line ->
+            val separatorIndex = line.indexOf(' ')
+            if (separatorIndex > 0) {
+                hashes[line.substring(separatorIndex + 1)] = if (upToDate) line.substring(0, separatorIndex) else ""
+            }
+        }
+        return hashes
+    }
+
+    private fun writeManifest(manifestFile: File, settings: String, hashes: Map<String, String>) {
+        manifestFile.parentFile.mkdirs()
+        val tempFile = File.createTempFile(manifestFile.name, ".tmp", manifestFile.parentFile)
+        try {
+            tempFile.bufferedWriter().use { writer ->
+                writer.appendLine(VERSION_PREFIX + KoverFeatures.version)
+                writer.appendLine(SETTINGS_PREFIX + settings)
+                hashes.forEach { (path, hash) -> writer.appendLine("$hash $path") }
+            }
+            Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+        } finally {
+            tempFile.delete()
+        }
+    }
+
+    private fun settingsHash(filters: ClassFilters, countHits: Boolean): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update(if (countHits) 1 else 0)
+        listOf(
+            filters.includeClasses,
+            filters.excludeClasses,
+            filters.includeAnnotation,
+            filters.excludeAnnotation,
+            filters.includeInheritedFrom,
+            filters.excludeInheritedFrom
+        ).forEach { templates ->
+            templates.sorted().forEach { template ->
+                digest.update(template.toByteArray())
+                digest.update(0)
+            }
+            digest.update(1)
+        }
+        return digest.digest().toHex()
+    }
+
+    private fun File.contentHash(): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        inputStream().use { stream ->
+            val buffer = ByteArray(8192)
+            while (true) {
+                val read = stream.read(buffer)
+                if (read < 0) break
+                digest.update(buffer, 0, read)
+            }
+        }
+        return digest.digest().toHex()
+    }
+
+    private fun ByteArray.toHex(): String = joinToString("") { byte -> "%02x".format(byte) }
+}
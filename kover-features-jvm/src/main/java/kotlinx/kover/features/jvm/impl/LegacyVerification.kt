@@ -4,15 +4,12 @@
 
 package kotlinx.kover.features.jvm.impl
 
-import com.intellij.rt.coverage.aggregate.api.AggregatorApi
-import com.intellij.rt.coverage.aggregate.api.Request
-import com.intellij.rt.coverage.report.api.Filters
-import com.intellij.rt.coverage.verify.Verifier
 import com.intellij.rt.coverage.verify.api.Counter
 import com.intellij.rt.coverage.verify.api.Target
 import com.intellij.rt.coverage.verify.api.ValueType
 import com.intellij.rt.coverage.verify.api.VerificationApi
 import kotlinx.kover.features.jvm.*
+import kotlinx.kover.features.jvm.impl.ParallelAggregation.AggregationRequest
 import java.io.File
 import java.math.BigDecimal
 import java.math.RoundingMode
@@ -30,17 +27,65 @@ internal object LegacyVerification {
         tempDir: File,
         filters: ClassFilters,
         reports: List<File>,
-        outputs: List<File>
+        outputs: List<File>,
+        parallelism: Int,
+        cache: AnalysisCache?
     ): List<RuleViolations> {
-        val intellijFilters: Filters = filters.convert()
-
-        val rulesArray = ArrayList<IntellijRule>()
-
         val ic = tempDir.resolve("agg-ic.ic")
         val smap = tempDir.resolve("agg-smap.smap")
 
-        val requests = Request(intellijFilters, ic, smap)
-        AggregatorApi.aggregate(listOf(requests), reports, outputs)
+        val request = AggregationRequest(filters, ic, smap)
+        ParallelAggregation.aggregate(listOf(request), reports, outputs, tempDir, parallelism, cache)
+
+        return verifyAggregated(rules, ic)
+    }
+
+    /**
+     * Verify each rule with its own filters.
+     *
+     * Class-files and binary reports are analyzed once: a separate aggregated report is written for each distinct set of filters in the same pass,
+     * after that all rules are checked together.
+     */
+    fun verifyWithFilters(
+        rules: List<FilteredRule>,
+        tempDir: File,
+        reports: List<File>,
+        outputs: List<File>,
+        parallelism: Int,
+        cache: AnalysisCache?
+    ): List<RuleViolations> {
+        if (rules.isEmpty()) return emptyList()
+
+        val icByFilters = LinkedHashMap<ClassFilters, File>()
+        val requests = ArrayList<AggregationRequest>()
+        for (filteredRule in rules) {
+            icByFilters.getOrPut(filteredRule.filters) {
+                val index = icByFilters.size
+                val ic = tempDir.resolve("agg-ic-$index.ic")
+                val smap = tempDir.resolve("agg-smap-$index.smap")
+                requests += AggregationRequest(filteredRule.filters, ic, smap)
+                ic
+            }
+        }
+        ParallelAggregation.aggregate(requests, reports, outputs, tempDir, parallelism, cache)
+
+        return verifyRules(rules.map { it.rule }, rules.map { icByFilters.getValue(it.filters) })
+    }
+
+    /**
+     * Verify rules against the already aggregated IC report [ic].
+     *
+     * Aggregated report contains all the classes from class-files directories, so no additional analysis of class-files is performed.
+     */
+    fun verifyAggregated(rules: List<Rule>, ic: File): List<RuleViolations> {
+        return verifyRules(rules, rules.map { ic })
+    }
+
+    /**
+     * Verify every rule from [rules] against aggregated IC report with the same index in [ics].
+     */
+    private fun verifyRules(rules: List<Rule>, ics: List<File>): List<RuleViolations> {
+        val rulesArray = ArrayList<IntellijRule>()
 
         for (ruleIndex in rules.indices) {
             val rule = rules[ruleIndex]
@@ -60,12 +105,10 @@ internal object LegacyVerification {
                 )
             }
 
-            rulesArray.add(IntellijRule(ruleIndex, ic, targetToIntellij(rule), bounds))
+            rulesArray.add(IntellijRule(ruleIndex, ics[ruleIndex], targetToIntellij(rule), bounds))
         }
 
-
-        val verifier = Verifier(rulesArray)
-        verifier.processRules()
+        // rules are processed inside, there is no need to run a separate Verifier beforehand
         val violations = VerificationApi.verify(rulesArray)
 
         val ruleViolations = ArrayList<RuleViolations>()
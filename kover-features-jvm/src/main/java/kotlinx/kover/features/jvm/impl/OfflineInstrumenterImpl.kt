@@ -18,9 +18,10 @@ import java.io.InputStream
 internal class OfflineInstrumenterImpl(private val countHits: Boolean): OfflineInstrumenter {
 
     override fun instrument(originalClass: InputStream, debugName: String): ByteArray {
-        val previousConDySetting = ConDySettings.disableConDy()
         try {
-            return OfflineInstrumentationApi.instrument(originalClass, countHits)
+            return ConDySettings.withDisabledConDy {
+                OfflineInstrumentationApi.instrument(originalClass, countHits)
+            }
         } catch (e: Throwable) {
             throw IOException(
                 String.format(
@@ -30,8 +31,6 @@ internal class OfflineInstrumenterImpl(private val countHits: Boolean): OfflineI
                 ),
                 e
             )
-        } finally {
-            ConDySettings.restoreConDy(previousConDySetting)
         }
     }
 }
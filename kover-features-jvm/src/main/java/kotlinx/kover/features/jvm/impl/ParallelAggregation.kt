@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import com.intellij.rt.coverage.aggregate.api.AggregatorApi
+import com.intellij.rt.coverage.aggregate.api.Request
+import kotlinx.kover.features.jvm.AnalysisCache
+import kotlinx.kover.features.jvm.ClassFilters
+import java.io.File
+
+/**
+ * Aggregation of binary reports and class-files, which analyzes class-files directories in several threads.
+ *
+ * Each class-files directory is aggregated separately, after that partial reports are merged in the order of directories.
+ * The same partitioning is used for any number of threads, including one thread, so the result does not depend on the parallelism.
+ */
+internal object ParallelAggregation {
+    private const val MAX_MERGE_BATCH_SIZE = 32
+
+    /**
+     * Request to write classes accepted by [filters] into aggregated IC report [ic] and source map [smap].
+     */
+    class AggregationRequest(val filters: ClassFilters, val ic: File, val smap: File)
+
+    /**
+     * Aggregate [binaryReports] and [classfileDirs] for all [requests] using [parallelism] threads.
+     *
+     * Class-files directories are aggregated in a single pass only if there is one directory or the hierarchy of classes is required for filtering.
+     * If [cache] is specified, the analysis of unchanged class-files is taken from the cache.
+     * Source maps of requests are written only if class-files directories are aggregated in a single pass or with the cache,
+     * the aggregation by partitions does not write them. Source maps are not required to generate reports from the aggregated IC report.
+     */
+    fun aggregate(
+        requests: List<AggregationRequest>,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        tempDir: File,
+        parallelism: Int,
+        cache: AnalysisCache?
+    ) {
+        require(parallelism > 0) { "Parallelism should be positive, actual: $parallelism" }
+        if (requests.isEmpty()) return
+
+        val workDir = tempDir.resolve("parallel-aggregation")
+        workDir.deleteRecursively()
+        workDir.mkdirs()
+        try {
+            // hits from all binary reports are merged once instead of re-reading all the reports for every directory
+            val reports = mergeReports(binaryReports, workDir, parallelism)
+
+            if (cache != null && classfileDirs.isNotEmpty() && requests.all { CachedAnalysis.isApplicable(it.filters) }) {
+                CachedAnalysis.aggregate(cache, requests, reports, classfileDirs, parallelism)
+                return
+            }
+
+            // class hierarchy is required to filter by inheritance, so all class-files should be analyzed together
+            if (classfileDirs.size < 2 || requests.any { it.filters.hasInheritanceFilters() }) {
+                AggregatorApi.aggregate(requests.map { Request(it.filters.convert(), it.ic, it.smap) }, reports, classfileDirs)
+                return
+            }
+
+            val intellijFilters = requests.map { it.filters.convert() }
+            val partials = runParallel(classfileDirs.indices.toList(), parallelism) { dirIndex ->
+                val ics = requests.indices.map { requestIndex -> workDir.resolve("partial-$requestIndex-$dirIndex.ic") }
+                val partialRequests = requests.indices.map { requestIndex ->
+                    Request(intellijFilters[requestIndex], ics[requestIndex], workDir.resolve("partial-$requestIndex-$dirIndex.smap"))
+                }
+                AggregatorApi.aggregate(partialRequests, reports, listOf(classfileDirs[dirIndex]))
+                ics
+            }
+
+            runParallel(requests.indices.toList(), parallelism) { requestIndex ->
+                AggregatorApi.merge(partials.map { it[requestIndex] }, requests[requestIndex].ic)
+            }
+        } finally {
+            workDir.deleteRecursively()
+        }
+    }
+
+    /**
+     * Merge several [binaryReports], e.g. the reports of the forks of test tasks, into one report in [workDir].
+     *
+     * Reports are always merged in batches of at most [MAX_MERGE_BATCH_SIZE] reports, so the memory consumption is limited for any number of threads.
+     * With several threads, the reports are split evenly between them.
+     */
+    private fun mergeReports(binaryReports: List<File>, workDir: File, parallelism: Int): List<File> {
+        if (binaryReports.size < 2) return binaryReports
+
+        val merged = workDir.resolve("reports.ic")
+        val batchSize = ((binaryReports.size + parallelism - 1) / parallelism).coerceIn(2, MAX_MERGE_BATCH_SIZE)
+        ReportMerging.merge(merged, binaryReports, workDir, batchSize, parallelism)
+        return listOf(merged)
+    }
+
+    private fun ClassFilters.hasInheritanceFilters(): Boolean {
+        return includeInheritedFrom.isNotEmpty() || excludeInheritedFrom.isNotEmpty()
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import kotlinx.kover.features.jvm.ClassFilters
+import java.io.File
+import java.util.regex.Pattern
+
+/**
+ * Offline instrumentation of class-files directories, which instruments each class-file independently.
+ *
+ * Since class-files do not depend on each other, they can be instrumented in several threads or only some of them can be instrumented.
+ */
+internal object ParallelInstrumentation {
+    private const val CLASS_FILE_EXTENSION = ".class"
+    private const val VERSIONS_PREFIX = "META-INF/versions/"
+
+    /**
+     * Check whether classes accepted by [filters] can be determined by the class name only.
+     *
+     * Annotations and inheritance filters require the analysis of the class hierarchy, so such filters can only be applied by sequential instrumentation.
+     */
+    fun isApplicable(filters: ClassFilters): Boolean {
+        return filters.includeAnnotation.isEmpty() && filters.excludeAnnotation.isEmpty()
+                && filters.includeInheritedFrom.isEmpty() && filters.excludeInheritedFrom.isEmpty()
+    }
+
+    /**
+     * Instrument class-files from [originalDirs] accepted by [filters] and write them to [resultDir] in [parallelism] threads.
+     *
+     * Other files from [originalDirs] are copied to [resultDir] unchanged.
+     * If there are files with the same relative path in several directories, the file from the last directory is written.
+     */
+    fun instrument(resultDir: File, originalDirs: List<File>, filters: ClassFilters, countHits: Boolean, parallelism: Int) {
+        instrumentFiles(resultDir, collectFiles(originalDirs), filters, countHits, parallelism)
+    }
+
+    /**
+     * Collect all files from [originalDirs] by their relative paths.
+     *
+     * If there are files with the same relative path in several directories, the file from the last directory is taken.
+     */
+    fun collectFiles(originalDirs: List<File>): Map<String, File> {
+        val filesByPath = LinkedHashMap<String, File>()
+        originalDirs.forEach { dir ->
+            dir.walkTopDown().filter { it.isFile }.forEach { file ->
+                filesByPath[file.relativeTo(dir).invariantSeparatorsPath] = file
+            }
+        }
+        return filesByPath
+    }
+
+    /**
+     * Instrument class-files from [filesByPath] accepted by [filters] and write them to [resultDir] by their relative paths.
+     *
+     * Other files are copied to [resultDir] unchanged.
+     */
+    fun instrumentFiles(resultDir: File, filesByPath: Map<String, File>, filters: ClassFilters, countHits: Boolean, parallelism: Int) {
+        val matcher = ClassNameMatcher(filters)
+        val instrumenter = OfflineInstrumenterImpl(countHits)
+
+        ConDySettings.withDisabledConDy {
+            runParallel(filesByPath.entries.toList(), parallelism) { (path, file) ->
+                val target = resultDir.resolve(path)
+                target.parentFile.mkdirs()
+
+                val className = path.toClassName()
+                if (className != null && matcher.matches(className)) {
+                    val bytes = file.inputStream().use { stream -> instrumenter.instrument(stream, path) }
+                    target.writeBytes(bytes)
+                } else {
+                    file.copyTo(target, overwrite = true)
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the binary name of the class from the relative path of the class-file, `null` if the file is not a class-file of a regular class.
+     *
+     * Versioned class-files of multi-release JARs are named by the class they contain.
+     */
+    fun String.toClassName(): String? {
+        if (!endsWith(CLASS_FILE_EXTENSION)) return null
+
+        var path = removeSuffix(CLASS_FILE_EXTENSION)
+        if (path.startsWith(VERSIONS_PREFIX)) {
+            // skip the version number directory
+            path = path.removePrefix(VERSIONS_PREFIX).substringAfter('/', "")
+        }
+        val className = path.replace('/', '.')
+        if (className.isEmpty() || className == "module-info" || className.endsWith("package-info")) return null
+        return className
+    }
+
+    /**
+     * Matcher of class names by include and exclude class filters.
+     */
+    class ClassNameMatcher(filters: ClassFilters) {
+        private val include: Pattern? = filters.includeClasses.takeIf { it.isNotEmpty() }?.let { Pattern.compile(it.wildcardsToCombinedRegex()) }
+        private val exclude: Pattern? = filters.excludeClasses.takeIf { it.isNotEmpty() }?.let { Pattern.compile(it.wildcardsToCombinedRegex()) }
+
+        fun matches(className: String): Boolean {
+            if (exclude != null && exclude.matcher(className).matches()) return false
+            return include == null || include.matcher(className).matches()
+        }
+    }
+}
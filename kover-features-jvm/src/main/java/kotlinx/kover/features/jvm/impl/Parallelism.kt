@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Apply [action] to every element of [items] in a pool of [parallelism] threads.
+ *
+ * Results are returned in the order of [items], the first occurred error is rethrown.
+ */
+internal fun <T, R> runParallel(items: List<T>, parallelism: Int, action: (T) -> R): List<R> {
+    if (items.isEmpty()) return emptyList()
+
+    val executor = Executors.newFixedThreadPool(minOf(parallelism, items.size), KoverThreadFactory)
+    try {
+        val futures: List<Future<R>> = items.map { item -> executor.submit(Callable { action(item) }) }
+        return futures.map { future ->
+            try {
+                future.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+    } finally {
+        executor.shutdownNow()
+    }
+}
+
+private object KoverThreadFactory : ThreadFactory {
+    private val counter = AtomicInteger()
+
+    override fun newThread(runnable: Runnable): Thread {
+        val thread = Thread(runnable, "kover-worker-" + counter.incrementAndGet())
+        thread.isDaemon = true
+        return thread
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import com.intellij.rt.coverage.aggregate.api.AggregatorApi
+import java.io.File
+
+/**
+ * Merging of a large number of binary reports with limited memory consumption.
+ */
+internal object ReportMerging {
+    /**
+     * Merge [binaryReports] into [icFile] by tree reduction.
+     *
+     * At most [batchSize] reports are merged at once, so only the merged data of a batch is held in memory.
+     * In each round, the batches are merged independently in [parallelism] threads, and the number of reports is reduced by [batchSize] times.
+     * Batches are formed in the order of [binaryReports], so the result does not depend on the number of threads.
+     * Compressed reports are decompressed only when their batch is merged, so at most one batch per thread is decompressed at once.
+     */
+    fun merge(icFile: File, binaryReports: List<File>, tempDir: File, batchSize: Int, parallelism: Int) {
+        val workDir = tempDir.resolve("merge")
+        workDir.deleteRecursively()
+        workDir.mkdirs()
+        try {
+            var reports = binaryReports
+            var round = 0
+            while (reports.size > batchSize) {
+                val batches = reports.chunked(batchSize)
+                val merged = runParallel(batches.indices.toList(), parallelism) { batchIndex ->
+                    val batch = batches[batchIndex]
+                    if (batch.size == 1) {
+                        batch[0]
+                    } else {
+                        val output = workDir.resolve("round-$round-$batchIndex.ic")
+                        CompressedReports.withDecompressed(batch, workDir) { reports -> AggregatorApi.merge(reports, output) }
+                        output
+                    }
+                }
+
+                // intermediate results of the previous round are no longer needed
+                reports.filter { it.parentFile == workDir && it !in merged }.forEach { it.delete() }
+                reports = merged
+                round++
+            }
+            CompressedReports.withDecompressed(reports, workDir) { decompressed -> AggregatorApi.merge(decompressed, icFile) }
+        } finally {
+            workDir.deleteRecursively()
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm.impl
+
+import com.intellij.rt.coverage.report.api.Filters
+import com.intellij.rt.coverage.report.api.ReportApi
+import com.intellij.rt.coverage.util.ErrorReporter
+import java.io.File
+
+/**
+ * Internal utility to generate human-readable reports by IntelliJ reporter.
+ */
+internal object Reports {
+    private const val FREE_MARKER_LOGGER_PROPERTY_NAME = "org.freemarker.loggerLibrary"
+
+    fun xml(
+        xmlFile: File,
+        title: String,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        sourceDirs: List<File>,
+        filters: Filters
+    ) {
+        ReportApi.xmlReport(xmlFile, title, binaryReports, classfileDirs, sourceDirs, filters)
+    }
+
+    fun html(
+        htmlDir: File,
+        title: String,
+        charsetName: String?,
+        binaryReports: List<File>,
+        classfileDirs: List<File>,
+        sourceDirs: List<File>,
+        filters: Filters
+    ) {
+        // print to stdout only critical errors
+        ErrorReporter.setLogLevel(ErrorReporter.ERROR)
+
+        // disable freemarker logging to stdout for the time of report generation
+        val oldFreemarkerLogger = System.setProperty(FREE_MARKER_LOGGER_PROPERTY_NAME, "none")
+        try {
+            ReportApi.htmlReport(htmlDir, title, charsetName, binaryReports, classfileDirs, sourceDirs, filters)
+        } finally {
+            if (oldFreemarkerLogger == null) {
+                System.clearProperty(FREE_MARKER_LOGGER_PROPERTY_NAME)
+            } else {
+                System.setProperty(FREE_MARKER_LOGGER_PROPERTY_NAME, oldFreemarkerLogger)
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ package kotlinx.kover.features.jvm.impl
 
 import com.intellij.rt.coverage.report.api.Filters
 import kotlinx.kover.features.jvm.ClassFilters
+import java.util.*
 import java.util.regex.Pattern
 
 internal fun ClassFilters.convert(): Filters {
@@ -19,8 +20,45 @@ internal fun ClassFilters.convert(): Filters {
     )
 }
 
-private fun Collection<String>.toRegexp(): List<Pattern> {
-    return map { template -> Pattern.compile(template.wildcardsToRegex()) }
+/**
+ * IntelliJ filters that accept all classes.
+ *
+ * Used if the classes have already been filtered, for example, when reading an aggregated report.
+ */
+internal val acceptAllFilters: Filters =
+    Filters(emptyList(), emptyList(), emptyList(), emptyList(), emptyList(), emptyList())
+
+/**
+ * All wildcards of one kind are compiled into one pattern, so a class name is checked in a single pass.
+ */
+internal fun Collection<String>.toRegexp(): List<Pattern> {
+    if (isEmpty()) return emptyList()
+    return listOf(Pattern.compile(wildcardsToCombinedRegex()))
+}
+
+/**
+ * Combine [this] wildcards into a single regular expression that matches a string if it matches at least one of the wildcards.
+ *
+ * The literal prefixes of the wildcards (usually package names) are merged into a prefix tree,
+ * so the common prefix is checked once instead of checking it separately for each wildcard.
+ */
+internal fun Collection<String>.wildcardsToCombinedRegex(): String {
+    val trie = RegexTrie()
+    forEach { template ->
+        val wildcardIndex = template.indexOfFirst { char -> char == '*' || char == '?' || char == '#' }
+        val literalEnd = if (wildcardIndex < 0) template.length else wildcardIndex
+        trie.add(template.substring(0, literalEnd), template.substring(literalEnd).wildcardsToRegex())
+    }
+    return trie.toRegex()
+}
+
+/**
+ * Regular expression that matches exactly one of [this] strings.
+ */
+internal fun Collection<String>.exactNamesToRegex(): String {
+    val trie = RegexTrie()
+    forEach { name -> trie.add(name, "") }
+    return trie.toRegex()
 }
 
 /**
@@ -44,3 +82,68 @@ internal fun String.wildcardsToRegex(): String {
 }
 
 private val regexMetacharactersSet = "<([{\\^-=$!|]})+.>".toSet()
+
+/**
+ * Prefix tree of literal strings, each of which ends with a tail in the form of a regular expression.
+ */
+private class RegexTrie {
+    private val children = TreeMap<Char, RegexTrie>()
+    private val tails = TreeSet<String>()
+
+    fun add(literal: String, tailRegex: String) {
+        var node = this
+        literal.forEach { char -> node = node.children.getOrPut(char) { RegexTrie() } }
+        node.tails += tailRegex
+    }
+
+    fun toRegex(): String {
+        val builder = StringBuilder()
+        appendTo(builder)
+        return builder.toString()
+    }
+
+    private fun appendTo(builder: StringBuilder) {
+        var node = this
+        // chains of nodes with single child are written as a literal
+        while (node.tails.isEmpty() && node.children.size == 1) {
+            val (char, child) = node.children.entries.first()
+            builder.appendLiteral(char)
+            node = child
+        }
+
+        // any tail `.*` matches all strings in the subtree
+        if (ANY_TAIL in node.tails) {
+            builder.append(ANY_TAIL)
+            return
+        }
+
+        if (node.children.isEmpty() && node.tails.size == 1) {
+            builder.append(node.tails.first())
+            return
+        }
+
+        builder.append("(?:")
+        var first = true
+        node.children.forEach { (char, child) ->
+            if (!first) builder.append('|')
+            first = false
+            builder.appendLiteral(char)
+            child.appendTo(builder)
+        }
+        node.tails.forEach { tail ->
+            if (!first) builder.append('|')
+            first = false
+            builder.append(tail)
+        }
+        builder.append(')')
+    }
+
+    private fun StringBuilder.appendLiteral(char: Char) {
+        if (char in regexMetacharactersSet) append('\\')
+        append(char)
+    }
+
+    private companion object {
+        const val ANY_TAIL = ".*"
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm
+
+import kotlinx.kover.features.jvm.impl.CachedAnalysis
+import java.io.File
+import java.util.concurrent.TimeUnit
+import kotlin.io.path.createTempDirectory
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotEquals
+import kotlin.test.assertTrue
+
+class AnalysisCacheTests {
+    private val ic = File("$RESOURCES_PATH/test.ic")
+
+    @Test
+    fun cachedCoverageMatchesAnalysis() {
+        withTempDir { dir ->
+            val classfileDirs = splitClasses(dir.resolve("classes"))
+            val cache = dir.cache()
+
+            val expected = coverage(dir, classfileDirs, noFilters, null)
+            // the first call fills the cache, the second one takes all classes from it
+            assertEquals(expected, coverage(dir, classfileDirs, noFilters, cache))
+            assertEquals(expected, coverage(dir, classfileDirs, noFilters, cache))
+            assertTrue(expected.any { it.entityName == "org.jetbrains.kover.test.ExampleClass" })
+        }
+    }
+
+    @Test
+    fun unchangedClassesAreNotAnalyzedAgain() {
+        withTempDir { dir ->
+            val classfileDirs = splitClasses(dir.resolve("classes"))
+            val cache = dir.cache()
+
+            coverage(dir, classfileDirs, noFilters, cache)
+            val entries = cache.entries()
+            assertEquals(2, entries.size)
+            val modified = entries.associateWith { it.lastModified() }
+
+            coverage(dir, classfileDirs, noFilters, cache)
+            assertEquals(entries, cache.entries())
+            // the content of entries is not rewritten, only the usage time is updated
+            assertTrue(entries.all { it.lastModified() >= modified.getValue(it) })
+        }
+    }
+
+    @Test
+    fun changedClassIsAnalyzedAgain() {
+        withTempDir { dir ->
+            val classfileDirs = splitClasses(dir.resolve("classes"))
+            val cache = dir.cache()
+
+            coverage(dir, classfileDirs, noFilters, cache)
+            val entries = cache.entries()
+
+            // change the string constant in the class, the class-file remains valid
+            val classFile = classfileDirs.map { it.resolve("org/jetbrains/kover/test/ExampleClass.class") }.single { it.exists() }
+            val content = classFile.readBytes()
+            val index = String(content, Charsets.ISO_8859_1).indexOf("AAA")
+            content.fill('B'.code.toByte(), index, index + 3)
+            classFile.writeBytes(content)
+
+            val expected = coverage(dir, classfileDirs, noFilters, null)
+            assertEquals(expected, coverage(dir, classfileDirs, noFilters, cache))
+
+            val newEntries = cache.entries() - entries
+            assertEquals(1, newEntries.size)
+        }
+    }
+
+    @Test
+    fun filtersAreAppliedToCachedClasses() {
+        withTempDir { dir ->
+            val classfileDirs = splitClasses(dir.resolve("classes"))
+            val cache = dir.cache()
+            val filters = ClassFilters(emptySet(), setOf("*.DataClass"), emptySet(), emptySet(), emptySet(), emptySet())
+
+            coverage(dir, classfileDirs, noFilters, cache)
+            val entries = cache.entries()
+
+            // entries do not depend on filters, so the change of filters does not require the analysis
+            val filtered = coverage(dir, classfileDirs, filters, cache)
+            assertEquals(coverage(dir, classfileDirs, filters, null), filtered)
+            assertTrue(filtered.none { it.entityName == "org.jetbrains.kover.test.DataClass" })
+            assertEquals(entries, cache.entries())
+
+            assertEquals(coverage(dir, classfileDirs, noFilters, null), coverage(dir, classfileDirs, noFilters, cache))
+        }
+    }
+
+    @Test
+    fun keyDependsOnVersionPathAndContent() {
+        val content = byteArrayOf(1, 2, 3)
+        val key = CachedAnalysis.entryKey("1.0.0", "com/example/Foo.class", content)
+
+        assertEquals(key, CachedAnalysis.entryKey("1.0.0", "com/example/Foo.class", content.copyOf()))
+        assertNotEquals(key, CachedAnalysis.entryKey("1.0.1", "com/example/Foo.class", content))
+        assertNotEquals(key, CachedAnalysis.entryKey("1.0.0", "com/example/Bar.class", content))
+        assertNotEquals(key, CachedAnalysis.entryKey("1.0.0", "com/example/Foo.class", byteArrayOf(1, 2, 4)))
+    }
+
+    @Test
+    fun oldEntriesAreEvicted() {
+        withTempDir { dir ->
+            val classfileDirs = splitClasses(dir.resolve("classes"))
+            val cache = dir.cache()
+
+            val unused = cache.directory.resolve("00").resolve("0".repeat(64) + ".ic")
+            unused.parentFile.mkdirs()
+            unused.writeText("unused")
+            unused.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30))
+
+            coverage(dir, classfileDirs, noFilters, cache)
+            val entries = cache.entries()
+            assertEquals(2, entries.size)
+            assertTrue(unused !in entries)
+        }
+    }
+
+    @Test
+    fun entriesAreEvictedBySize() {
+        withTempDir { dir ->
+            val classfileDirs = splitClasses(dir.resolve("classes"))
+            val cache = dir.cache(maxSizeBytes = 0)
+
+            val expected = coverage(dir, classfileDirs, noFilters, null)
+            assertEquals(expected, coverage(dir, classfileDirs, noFilters, cache))
+            assertEquals(emptyList<File>(), cache.entries())
+        }
+    }
+
+    private fun coverage(dir: File, classfileDirs: List<File>, filters: ClassFilters, cache: AnalysisCache?): List<EntityCoverage> {
+        val tempDir = dir.resolve("session")
+        try {
+            KoverLegacyFeatures.openSession(tempDir, listOf(ic), classfileDirs, emptyList(), filters, 1, cache).use { session ->
+                return session.coverage(GroupingBy.CLASS)
+            }
+        } finally {
+            tempDir.deleteRecursively()
+        }
+    }
+
+    private fun File.cache(maxSizeBytes: Long = 1024 * 1024): AnalysisCache {
+        return AnalysisCache(resolve("cache"), maxSizeBytes, TimeUnit.DAYS.toMillis(7))
+    }
+
+    private fun AnalysisCache.entries(): List<File> {
+        return directory.walkTopDown().filter { it.isFile }.sortedBy { it.path }.toList()
+    }
+
+    private inline fun withTempDir(block: (File) -> Unit) {
+        val dir = createTempDirectory("kover-cache-test").toFile()
+        try {
+            block(dir)
+        } finally {
+            dir.deleteRecursively()
+        }
+    }
+}
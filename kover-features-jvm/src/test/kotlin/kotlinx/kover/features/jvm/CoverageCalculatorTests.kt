@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm
+
+import kotlinx.kover.features.jvm.impl.value
+import java.io.File
+import java.math.BigDecimal
+import kotlin.io.path.createTempDirectory
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class CoverageCalculatorTests {
+    private val ic = File("$RESOURCES_PATH/test.ic")
+    private val classes = File("$RESOURCES_PATH/classes")
+
+    @Test
+    fun valuesAreSameAsVerified() {
+        withSession(noFilters) { session ->
+            assertTrue(session.coverage(GroupingBy.CLASS).isNotEmpty())
+            assertSameAsVerified(session)
+        }
+    }
+
+    @Test
+    fun valuesWithoutClassesAreSameAsVerified() {
+        val excludeAll = ClassFilters(emptySet(), setOf("*"), emptySet(), emptySet(), emptySet(), emptySet())
+        withSession(excludeAll) { session ->
+            assertEquals(emptyList<EntityCoverage>(), session.coverage(GroupingBy.CLASS))
+            assertSameAsVerified(session)
+
+            // the application is present with zero counters, its name is null
+            assertEquals(
+                listOf(CoverageValue(null, BigDecimal.ZERO)),
+                session.evalCoverage(GroupingBy.APPLICATION, CoverageUnit.LINE, AggregationType.COVERED_COUNT)
+            )
+            // percentage cannot be calculated for zero total
+            assertEquals(
+                emptyList<CoverageValue>(),
+                session.evalCoverage(GroupingBy.APPLICATION, CoverageUnit.LINE, AggregationType.COVERED_PERCENTAGE)
+            )
+        }
+    }
+
+    @Test
+    fun percentageIsRounded() {
+        assertEquals(BigDecimal("33.333300"), CoverageCounter(1, 2).value(AggregationType.COVERED_PERCENTAGE))
+        assertEquals(BigDecimal("66.666700"), CoverageCounter(1, 2).value(AggregationType.MISSED_PERCENTAGE))
+        assertEquals(BigDecimal("100.000000"), CoverageCounter(3, 0).value(AggregationType.COVERED_PERCENTAGE))
+        assertEquals(BigDecimal("0.000000"), CoverageCounter(3, 0).value(AggregationType.MISSED_PERCENTAGE))
+        assertEquals(BigDecimal("0.000100"), CoverageCounter(1, 999_999).value(AggregationType.COVERED_PERCENTAGE))
+    }
+
+    @Test
+    fun countsAreNotScaled() {
+        assertEquals(BigDecimal(1), CoverageCounter(1, 2).value(AggregationType.COVERED_COUNT))
+        assertEquals(BigDecimal(2), CoverageCounter(1, 2).value(AggregationType.MISSED_COUNT))
+        assertEquals(BigDecimal.ZERO, CoverageCounter(0, 0).value(AggregationType.COVERED_COUNT))
+    }
+
+    @Test
+    fun zeroTotalHasNoPercentage() {
+        assertNull(CoverageCounter(0, 0).value(AggregationType.COVERED_PERCENTAGE))
+        assertNull(CoverageCounter(0, 0).value(AggregationType.MISSED_PERCENTAGE))
+    }
+
+    /**
+     * Compare calculated values with the values reported by the IntelliJ verifier for a bound violated by any value,
+     * this is how the coverage values were obtained before the calculator.
+     */
+    private fun assertSameAsVerified(session: CoverageSession) {
+        for (groupBy in GroupingBy.values()) {
+            for (unit in CoverageUnit.values()) {
+                for (aggregation in AggregationType.values()) {
+                    val bound = Bound(BigDecimal(100), BigDecimal.ZERO, unit, aggregation)
+                    val verified = session.verify(listOf(Rule("", groupBy, listOf(bound))))
+                        .flatMap { it.violations }
+                        .map { CoverageValue(it.entityName, it.value) }
+                    val calculated = session.evalCoverage(groupBy, unit, aggregation)
+
+                    val message = "$groupBy, $unit, $aggregation"
+                    assertEquals(verified.map { it.entityName }, calculated.map { it.entityName }, message)
+                    verified.zip(calculated).forEach { (expected, actual) ->
+                        assertEquals(0, expected.value.compareTo(actual.value), "$message, ${expected.entityName}: expected ${expected.value}, actual ${actual.value}")
+                    }
+                }
+            }
+        }
+    }
+
+    private inline fun withSession(filters: ClassFilters, block: (CoverageSession) -> Unit) {
+        val dir = createTempDirectory("kover-calculator-test").toFile()
+        try {
+            KoverLegacyFeatures.openSession(dir, listOf(ic), listOf(classes), emptyList(), filters).use(block)
+        } finally {
+            dir.deleteRecursively()
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm
+
+import kotlinx.kover.features.jvm.impl.Reports
+import kotlinx.kover.features.jvm.impl.convert
+import java.io.File
+import kotlin.io.path.createTempDirectory
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+internal const val RESOURCES_PATH = "src/test/resources"
+
+internal val noFilters = ClassFilters(emptySet(), emptySet(), emptySet(), emptySet(), emptySet(), emptySet())
+
+/**
+ * Copy each class-file from test resources into a separate class-files root directory in [dir].
+ */
+internal fun splitClasses(dir: File): List<File> {
+    val classes = File("$RESOURCES_PATH/classes")
+    return classes.walkTopDown().filter { it.isFile }.sortedBy { it.name }.mapIndexed { index, file ->
+        val root = dir.resolve("classes-$index")
+        file.copyTo(root.resolve(file.relativeTo(classes).path))
+        root
+    }.toList()
+}
+
+class ReportsTests {
+    private val sources = File("$RESOURCES_PATH/sources")
+    private val ic = File("$RESOURCES_PATH/test.ic")
+
+    @Test
+    fun xmlDoesNotDependOnParallelism() {
+        val dir = createTempDirectory("kover-parallelism-test").toFile()
+        try {
+            // several class-files directories and binary reports, so they are aggregated and merged by partitions
+            val classfileDirs = splitClasses(dir)
+            val reports = listOf(1, 4).map { threads ->
+                val xmlFile = dir.resolve("report-$threads.xml")
+                KoverLegacyFeatures.generateXmlReport(xmlFile, listOf(ic, ic), classfileDirs, listOf(sources), "Kover XML Report", noFilters, threads)
+                xmlFile.readBytes()
+            }
+
+            assertContentEquals(reports[0], reports[1])
+        } finally {
+            dir.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun sessionXmlIsSameAsDirect() {
+        val dir = createTempDirectory("kover-session-test").toFile()
+        try {
+            val classes = File("$RESOURCES_PATH/classes")
+            val filters = ClassFilters(emptySet(), setOf("*.DataClass"), emptySet(), emptySet(), emptySet(), emptySet())
+
+            val direct = dir.resolve("direct.xml")
+            Reports.xml(direct, "Kover XML Report", listOf(ic), listOf(classes), listOf(sources), filters.convert())
+
+            val session = dir.resolve("session.xml")
+            KoverLegacyFeatures.openSession(dir.resolve("tmp"), listOf(ic), listOf(classes), listOf(sources), filters).use {
+                it.generateXmlReport(session, "Kover XML Report")
+            }
+
+            assertContentEquals(direct.readBytes(), session.readBytes())
+        } finally {
+            dir.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun sessionHtmlIsSameAsDirect() {
+        val dir = createTempDirectory("kover-session-test").toFile()
+        try {
+            val classes = File("$RESOURCES_PATH/classes")
+            val filters = ClassFilters(emptySet(), setOf("*.DataClass"), emptySet(), emptySet(), emptySet(), emptySet())
+
+            val direct = dir.resolve("direct")
+            Reports.html(direct, "Kover HTML Report", null, listOf(ic), listOf(classes), listOf(sources), filters.convert())
+
+            val session = dir.resolve("session")
+            KoverLegacyFeatures.openSession(dir.resolve("tmp"), listOf(ic), listOf(classes), listOf(sources), filters).use {
+                it.generateHtmlReport(session, null, "Kover HTML Report")
+            }
+
+            val directFiles = direct.walkTopDown().filter { it.isFile }.map { it.relativeTo(direct).path }.sorted().toList()
+            val sessionFiles = session.walkTopDown().filter { it.isFile }.map { it.relativeTo(session).path }.sorted().toList()
+            assertTrue(directFiles.isNotEmpty())
+            assertEquals(directFiles, sessionFiles)
+            directFiles.forEach { path ->
+                assertContentEquals(direct.resolve(path).readBytes(), session.resolve(path).readBytes(), path)
+            }
+        } finally {
+            dir.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun batchMergeRejectsInvalidArguments() {
+        val dir = createTempDirectory("kover-merge-test").toFile()
+        try {
+            val target = dir.resolve("merged.ic")
+            assertFailsWith<IllegalArgumentException> { KoverLegacyFeatures.mergeIc(target, emptyList(), dir, 1) }
+            assertFailsWith<IllegalArgumentException> { KoverLegacyFeatures.mergeIc(target, emptyList(), dir, 2, 0) }
+        } finally {
+            dir.deleteRecursively()
+        }
+    }
+}
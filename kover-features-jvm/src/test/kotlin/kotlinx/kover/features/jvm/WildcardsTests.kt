@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.features.jvm
+
+import kotlinx.kover.features.jvm.impl.exactNamesToRegex
+import kotlinx.kover.features.jvm.impl.wildcardsToCombinedRegex
+import kotlinx.kover.features.jvm.impl.wildcardsToRegex
+import java.io.File
+import java.util.regex.Pattern
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class WildcardsTests {
+    /**
+     * Wildcards and the expected matching of class names, the same cases are checked by the tests of Kover JVM agent.
+     */
+    private val cases: List<Pair<List<String>, Map<String, Boolean>>> = readCases(File("$RESOURCES_PATH/wildcards/cases.txt"))
+
+    @Test
+    fun sharedCasesAreMatchedByCombinedAndSeparateRegexes() {
+        cases.forEach { (wildcards, expected) ->
+            val combined = Pattern.compile(wildcards.wildcardsToCombinedRegex())
+
+            expected.forEach { (className, matches) ->
+                assertEquals(matches, combined.matcher(className).matches(), "Combined regex, class name '$className' with wildcards $wildcards")
+                val separate = wildcards.any { wildcard -> Pattern.matches(wildcard.wildcardsToRegex(), className) }
+                assertEquals(matches, separate, "Separate regexes, class name '$className' with wildcards $wildcards")
+            }
+        }
+    }
+
+    @Test
+    fun anyTailSubsumesOtherWildcards() {
+        assertEquals("com\\.example\\..*", listOf("com.example.*", "com.example.Foo", "com.example.sub.*Test").wildcardsToCombinedRegex())
+    }
+
+    @Test
+    fun literalPrefixIsWrittenOnce() {
+        assertEquals("com\\.example\\.(?:Bar|Foo)", listOf("com.example.Foo", "com.example.Bar").wildcardsToCombinedRegex())
+    }
+
+    @Test
+    fun exactNamesAreMatchedExactly() {
+        val names = listOf("com.example.Foo", "com.example.Foo\$Inner", "com.example.Bar", "Baz")
+        val pattern = Pattern.compile(names.exactNamesToRegex())
+
+        names.forEach { name -> assertEquals(true, pattern.matcher(name).matches(), name) }
+        listOf("com.example.Fo", "com.example.FooX", "com.example.Foo\$", "com.exampleXFoo", "Ba", "").forEach { name ->
+            assertEquals(false, pattern.matcher(name).matches(), name)
+        }
+    }
+
+    private fun readCases(file: File): List<Pair<List<String>, Map<String, Boolean>>> {
+        val cases = ArrayList<Pair<List<String>, MutableMap<String, Boolean>>>()
+        file.readLines().forEach { line ->
+            when {
+                line.startsWith("wildcards:") -> cases.add(line.removePrefix("wildcards:").trim().split(' ') to LinkedHashMap())
+                line.startsWith("+") -> cases.last().second[line.drop(2)] = true
+                line.startsWith("-") -> cases.last().second[line.drop(2)] = false
+            }
+        }
+        return cases
+    }
+}
@@ -0,0 +1,3 @@
+package org.jetbrains.kover.test
+
+data class DataClass(val a: Int, val b: Long)
\ No newline at end of file
@@ -58,7 +58,7 @@ private class CheckerContextImpl(
     override val output: String = result.output
 
     override val defaultBinReport: String
-        get() = binReportsDirectory + "/" + defaultTestTaskName(project.kotlinPlugin.type!!) + "." + project.toolVariant.vendor.binReportExtension
+        get() = binReportsDirectory + "/" + defaultTestTaskName(project.kotlinPlugin.type!!)
 
     override val hasError: Boolean
         get() = !result.isSuccessful
@@ -125,11 +125,11 @@ private class CheckerContextImpl(
         if (mustExist) {
             file(defaultBinReport) {
                 assertTrue(exists(), "Default binary report is not exists: $defaultBinReport")
-                assertTrue(length() > 0, "Default binary report is empty: $defaultBinReport")
+                assertTrue(binReports().any { it.length() > 0 }, "Default binary report is empty: $defaultBinReport")
             }
         } else {
             file(defaultBinReport) {
-                assertFalse(exists(), "Default binary report must not exist: $defaultBinReport" )
+                assertTrue(binReports().isEmpty(), "Default binary report must not exist: $defaultBinReport" )
             }
         }
     }
@@ -266,6 +266,13 @@ private val includeRegex = """\s*include\s*\(.+""".toRegex()
 
 private val pathStringRegex = """["'](:[^"']*)["']""".toRegex()
 
+/**
+ * Binary reports written by all forks of the test task into [this] directory.
+ */
+private fun File.binReports(): List<File> {
+    return listFiles()?.filter { it.isFile } ?: emptyList()
+}
+
 private fun File.buildFile(): File {
     var file = this.resolve("build.gradle")
     if (file.exists() && file.isFile) return file
@@ -4,9 +4,12 @@
 
 package kotlinx.kover.gradle.aggregation.settings.tasks
 
+import kotlinx.kover.features.jvm.AnalysisCache
 import kotlinx.kover.features.jvm.KoverFeatures
 import kotlinx.kover.gradle.aggregation.commons.artifacts.ArtifactSerializer
 import kotlinx.kover.gradle.aggregation.commons.artifacts.ProjectArtifactInfoDeserialized
+import kotlinx.kover.gradle.plugin.commons.koverAnalysisCache
+import kotlinx.kover.gradle.plugin.commons.koverParallelism
 import org.gradle.api.DefaultTask
 import org.gradle.api.file.ConfigurableFileCollection
 import org.gradle.api.file.FileSystemLocation
@@ -28,6 +31,18 @@ internal abstract class AbstractKoverTask : DefaultTask() {
     @get:Internal
     protected val projectPath: String = project.path
 
+    /**
+     * Number of threads to analyze class-files, specified by `kover.parallelism` Gradle property.
+     */
+    @get:Internal
+    protected val parallelism: Int = project.koverParallelism()
+
+    /**
+     * Cache of class-files analysis, specified by `kover.cache.*` Gradle properties.
+     */
+    @get:Internal
+    protected val cache: AnalysisCache? = project.koverAnalysisCache()
+
     protected fun Set<FileSystemLocation>.data(): Map<String, ProjectArtifactInfoDeserialized> {
         return map { location -> location.asFile }
             .map { file -> ArtifactSerializer.deserialize(file.bufferedReader(), rootDir) }
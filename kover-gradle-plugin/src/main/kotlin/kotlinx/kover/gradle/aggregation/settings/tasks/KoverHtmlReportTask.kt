@@ -33,7 +33,9 @@ internal abstract class KoverHtmlReportTask : AbstractKoverReportTask() {
             outputs,
             sources,
             title.get(),
-            filters.get().toExternalFilters()
+            filters.get().toExternalFilters(),
+            parallelism,
+            cache
         )
     }
 
@@ -4,6 +4,7 @@
 
 package kotlinx.kover.gradle.aggregation.settings.tasks
 
+import kotlinx.kover.features.jvm.FilteredRule
 import kotlinx.kover.features.jvm.KoverLegacyFeatures
 import kotlinx.kover.gradle.plugin.commons.KoverVerificationException
 import org.gradle.api.provider.MapProperty
@@ -35,25 +36,24 @@ internal abstract class KoverReportVerifyTask : AbstractKoverTask() {
         val binaryReports = commonArtifacts.values.flatMap { artifact -> artifact.reports }
 
         val violations = rulesByProjectPath.get().mapValues { (path, rules) ->
-            rules
-                .filterNot { rule -> rule.disabled }
-                .flatMap { rule ->
-                    val outputs = commonArtifacts.values
-                        .map { artifact ->
-                            artifact.filterProjectSources(FiltersInput(includedProjects = setOf(path)))
-                        }
-                        .flatMap { artifact ->
-                            artifact.compilations.flatMap { compilation -> compilation.value.outputDirs }
-                        }
-
-                    KoverLegacyFeatures.verify(
-                        listOf(rule.toExternal()),
-                        temporaryDir,
-                        rule.filters.toExternalFilters(),
-                        binaryReports,
-                        outputs
-                    )
+            val outputs = commonArtifacts.values
+                .map { artifact ->
+                    artifact.filterProjectSources(FiltersInput(includedProjects = setOf(path)))
+                }
+                .flatMap { artifact ->
+                    artifact.compilations.flatMap { compilation -> compilation.value.outputDirs }
                 }
+
+            KoverLegacyFeatures.verifyWithFilters(
+                rules
+                    .filterNot { rule -> rule.disabled }
+                    .map { rule -> FilteredRule(rule.toExternal(), rule.filters.toExternalFilters()) },
+                temporaryDir,
+                binaryReports,
+                outputs,
+                parallelism,
+                cache
+            )
         }.filter {
             ruleViolations -> ruleViolations.value.isNotEmpty()
         }
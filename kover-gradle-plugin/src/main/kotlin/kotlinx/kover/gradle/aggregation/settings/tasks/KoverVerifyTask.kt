@@ -4,6 +4,7 @@
 
 package kotlinx.kover.gradle.aggregation.settings.tasks
 
+import kotlinx.kover.features.jvm.FilteredRule
 import kotlinx.kover.features.jvm.KoverLegacyFeatures
 import kotlinx.kover.gradle.plugin.commons.KoverVerificationException
 import org.gradle.api.provider.ListProperty
@@ -31,21 +32,25 @@ internal abstract class KoverVerifyTask : AbstractKoverTask() {
         val commonArtifacts = artifacts.elements.get().data()
         val binaryReports = commonArtifacts.values.flatMap { artifact -> artifact.reports }
 
+        // class-files directories depend only on project filters, so rules with the same project filters are verified in one pass
         val violations = rules.get()
             .filterNot { rule -> rule.disabled }
-            .flatMap { rule ->
+            .groupBy { rule -> rule.filters.includedProjects to rule.filters.excludedProjects }
+            .flatMap { (_, groupRules) ->
+                val projectFilters = groupRules.first().filters
                 val outputs = commonArtifacts.values
-                    .map { artifact -> artifact.filterProjectSources(rule.filters) }
+                    .map { artifact -> artifact.filterProjectSources(projectFilters) }
                     .flatMap { artifact ->
                         artifact.compilations.flatMap { compilation -> compilation.value.outputDirs }
                     }
 
-                KoverLegacyFeatures.verify(
-                    listOf(rule.toExternal()),
+                KoverLegacyFeatures.verifyWithFilters(
+                    groupRules.map { rule -> FilteredRule(rule.toExternal(), rule.filters.toExternalFilters()) },
                     temporaryDir,
-                    rule.filters.toExternalFilters(),
                     binaryReports,
-                    outputs
+                    outputs,
+                    parallelism,
+                    cache
                 )
             }
 
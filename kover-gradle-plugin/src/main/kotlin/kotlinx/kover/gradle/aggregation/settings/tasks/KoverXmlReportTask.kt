@@ -31,7 +31,9 @@ internal abstract class KoverXmlReportTask : AbstractKoverReportTask() {
             outputs,
             sources,
             title.get(),
-            filters.get().toExternalFilters()
+            filters.get().toExternalFilters(),
+            parallelism,
+            cache
         )
     }
 
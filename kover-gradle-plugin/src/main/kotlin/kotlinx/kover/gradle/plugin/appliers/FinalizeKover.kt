@@ -162,7 +162,7 @@ private fun JvmVariantOrigin.createVariant(
     koverContext: KoverContext,
     config: KoverVariantCreateConfigImpl,
 ): JvmVariantArtifacts {
-    tests.instrument(koverContext, koverContext.projectExtension.koverDisabled, koverContext.projectExtension.currentProject)
+    tests.instrument(koverContext, koverContext.projectExtension.koverDisabled, koverContext.projectExtension.currentProject, compilations)
     return JvmVariantArtifacts(
         variantName,
         koverContext.project,
@@ -178,7 +178,7 @@ private fun AndroidVariantOrigin.createVariant(
     koverContext: KoverContext,
     config: KoverVariantCreateConfigImpl,
 ): AndroidVariantArtifacts {
-    tests.instrument(koverContext, koverContext.projectExtension.koverDisabled, koverContext.projectExtension.currentProject)
+    tests.instrument(koverContext, koverContext.projectExtension.koverDisabled, koverContext.projectExtension.currentProject, compilations)
     return AndroidVariantArtifacts(
         koverContext.project,
         buildVariant.buildVariant,
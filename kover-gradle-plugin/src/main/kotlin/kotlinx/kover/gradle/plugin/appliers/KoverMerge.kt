@@ -109,6 +109,7 @@ private fun KoverProjectInstrumentation.wrap(project: Project): KoverMergingInst
         override val disabledForTestTasks: SetProperty<String> = this@wrap.disabledForTestTasks
         override val excludedClasses: SetProperty<String> = this@wrap.excludedClasses
         override val includedClasses: SetProperty<String> = this@wrap.includedClasses
+        override val lineCoverageOnly: Property<Boolean> = this@wrap.lineCoverageOnly
         override val project: Project = project
     }
 }
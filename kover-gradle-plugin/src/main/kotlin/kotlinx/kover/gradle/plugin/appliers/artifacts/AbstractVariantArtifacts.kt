@@ -99,8 +99,12 @@ internal sealed class AbstractVariantArtifacts(
 
 
         val sources = compilations.map { unit -> unit.flatMap { it.sources } }
+        // all reports written by the forks of the test tasks
         val binReportFiles = project.layout.buildDirectory.dir(binReportsRootPath())
-            .map { dir -> tests.map { dir.file(binReportName(it.name, toolProvider.get().variant.vendor)) } }
+            .map { dir ->
+                val extension = toolProvider.get().variant.vendor.binReportExtension
+                tests.map { test -> dir.dir(test.name).asFileTree.matching { include("*.$extension") } }
+            }
 
         artifactGenTask.configure {
             // to generate an artifact, need to compile the entire project and perform all test tasks
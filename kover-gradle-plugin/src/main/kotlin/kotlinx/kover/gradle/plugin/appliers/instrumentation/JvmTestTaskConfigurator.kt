@@ -5,10 +5,14 @@
 package kotlinx.kover.gradle.plugin.appliers.instrumentation
 
 import kotlinx.kover.gradle.plugin.appliers.KoverContext
+import kotlinx.kover.gradle.plugin.appliers.origin.CompilationDetails
 import kotlinx.kover.gradle.plugin.commons.binReportPath
+import kotlinx.kover.gradle.plugin.commons.binReportsDirPath
 import kotlinx.kover.gradle.plugin.dsl.internal.KoverCurrentProjectVariantsConfigImpl
 import kotlinx.kover.gradle.plugin.tools.*
 import org.gradle.api.*
+import org.gradle.api.file.Directory
+import org.gradle.api.file.FileCollection
 import org.gradle.api.file.RegularFile
 import org.gradle.api.provider.*
 import org.gradle.api.tasks.*
@@ -22,9 +26,13 @@ import java.io.File
 internal fun TaskCollection<Test>.instrument(
     koverContext: KoverContext,
     koverDisabled: Provider<Boolean>,
-    current: KoverCurrentProjectVariantsConfigImpl
+    current: KoverCurrentProjectVariantsConfigImpl,
+    compilations: Provider<Map<String, CompilationDetails>>
 ) {
     configureEach {
+        // each fork of the test task may write its own report into the directory of the task
+        val binReportDirProvider =
+            project.layout.buildDirectory.map { dir -> dir.dir(binReportsDirPath(name)) }
         val binReportProvider =
             project.layout.buildDirectory.map { dir ->
                 dir.file(binReportPath(name, koverContext.toolProvider.get().variant.vendor))
@@ -32,9 +40,9 @@ internal fun TaskCollection<Test>.instrument(
         dependsOn(koverContext.findAgentJarTask)
 
         doFirst {
-            // delete report so that when the data is re-measured, it is not appended to an already existing file
+            // delete reports so that when the data is re-measured, it is not appended to already existing files
             // see https://github.com/Kotlin/kotlinx-kover/issues/489
-            binReportProvider.get().asFile.delete()
+            binReportDirProvider.get().asFile.listFiles()?.forEach { it.deleteRecursively() }
         }
 
         // Excludes Android SDK stub classes by default to prevent instrumentation errors,
@@ -59,6 +67,16 @@ internal fun TaskCollection<Test>.instrument(
             excludedSet + defaultExclusions
         }
 
+        // Set the Gradle property 'kover.agent.project.classes.only' to instrument only the classes compiled in this project,
+        // classes from dependency jars and other projects are loaded without instrumentation.
+        val projectClassesOnly = project.providers
+            .gradleProperty("kover.agent.project.classes.only")
+            .map { it.toBoolean() }
+            .orElse(false)
+        val projectClassesDirs = project.files(compilations.map { units ->
+            units.values.flatMap { unit -> listOfNotNull(unit.kotlin.outputs, unit.java?.outputs) }
+        })
+
         val taskInstrumentationDisabled = koverDisabled.map {
             // disable task instrumentation if Kover disabled
             if (it) return@map true
@@ -77,6 +95,10 @@ internal fun TaskCollection<Test>.instrument(
             taskInstrumentationDisabled,
             excludedClassesWithAndroid,
             current.instrumentation.includedClasses,
+            current.instrumentation.lineCoverageOnly,
+            projectClassesOnly,
+            projectClassesDirs,
+            binReportDirProvider,
             binReportProvider
         )
     }
@@ -103,7 +125,20 @@ private class JvmTestTaskArgumentProvider(
     @get:Input
     val includedClasses: Provider<Set<String>>,
 
-    @get:OutputFile
+    @get:Input
+    val lineCoverageOnly: Provider<Boolean>,
+
+    @get:Input
+    val projectClassesOnly: Provider<Boolean>,
+
+    // compiled classes are already inputs of the test task
+    @get:Internal
+    val projectClassesDirs: FileCollection,
+
+    @get:OutputDirectory
+    val reportDirProvider: Provider<Directory>,
+
+    @get:Internal
     val reportProvider: Provider<RegularFile>
 ) : CommandLineArgumentProvider, Named {
 
@@ -124,7 +159,9 @@ private class JvmTestTaskArgumentProvider(
                     tempDir,
                     reportProvider.get().asFile,
                     excludedClasses.get(),
-                    includedClasses.get()
+                    includedClasses.get(),
+                    lineCoverageOnly.get(),
+                    if (projectClassesOnly.get()) projectClassesDirs.files else emptySet()
                 ).toMutableList()
         } else {
             mutableListOf()
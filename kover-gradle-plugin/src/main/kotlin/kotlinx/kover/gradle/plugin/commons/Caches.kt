@@ -0,0 +1,26 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.gradle.plugin.commons
+
+import kotlinx.kover.features.jvm.AnalysisCache
+import org.gradle.api.Project
+import java.util.concurrent.TimeUnit
+
+private const val DEFAULT_CACHE_MAX_SIZE_MB = 1024L
+private const val DEFAULT_CACHE_MAX_AGE_DAYS = 7L
+
+/**
+ * Cache of class-files analysis, enabled by `kover.cache.dir` Gradle property.
+ *
+ * Relative path is resolved against the root project directory.
+ * The size and age of the cache are limited by `kover.cache.maxSizeMb` and `kover.cache.maxAgeDays` properties.
+ */
+internal fun Project.koverAnalysisCache(): AnalysisCache? {
+    val dir = providers.gradleProperty("kover.cache.dir").orNull ?: return null
+    val maxSizeMb = providers.gradleProperty("kover.cache.maxSizeMb").orNull?.toLong() ?: DEFAULT_CACHE_MAX_SIZE_MB
+    val maxAgeDays = providers.gradleProperty("kover.cache.maxAgeDays").orNull?.toLong() ?: DEFAULT_CACHE_MAX_AGE_DAYS
+
+    return AnalysisCache(rootDir.resolve(dir), maxSizeMb * 1024 * 1024, TimeUnit.DAYS.toMillis(maxAgeDays))
+}
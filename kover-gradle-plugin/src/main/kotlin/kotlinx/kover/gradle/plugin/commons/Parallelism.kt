@@ -0,0 +1,21 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.gradle.plugin.commons
+
+import org.gradle.api.Project
+
+private const val PARALLELISM_PROPERTY_NAME = "kover.parallelism"
+
+/**
+ * Number of threads to analyze class-files, specified by `kover.parallelism` Gradle property, `1` by default.
+ */
+internal fun Project.koverParallelism(): Int {
+    val value = providers.gradleProperty(PARALLELISM_PROPERTY_NAME).orNull ?: return 1
+    val parallelism = value.trim().toIntOrNull()
+    if (parallelism == null || parallelism < 1) {
+        throw KoverIllegalConfigException("Invalid value '$value' of Gradle property '$PARALLELISM_PROPERTY_NAME', a positive integer number of threads is expected")
+    }
+    return parallelism
+}
@@ -19,8 +19,13 @@ internal fun agentFilePath(toolVariant: CoverageToolVariant): String {
 
 internal fun binReportsRootPath() = "kover${separator}bin-reports"
 
+/**
+ * Directory with binary reports of all forks of the test task.
+ */
+internal fun binReportsDirPath(taskName: String) = "${binReportsRootPath()}${separator}$taskName"
+
 internal fun binReportPath(taskName: String, toolVendor: CoverageToolVendor): String {
-    return "${binReportsRootPath()}${separator}${binReportName(taskName, toolVendor)}"
+    return "${binReportsDirPath(taskName)}${separator}${binReportName(taskName, toolVendor)}"
 }
 
 internal fun htmlReportPath(variant: String): String {
@@ -4,6 +4,7 @@
 
 package kotlinx.kover.gradle.plugin.commons
 
+import kotlinx.kover.features.jvm.AnalysisCache
 import kotlinx.kover.gradle.plugin.dsl.*
 import org.gradle.api.*
 import org.gradle.api.file.*
@@ -59,7 +60,9 @@ internal class ReportContext(
     val classpath: FileCollection,
     val tempDir: File,
     val projectPath: String,
-    val services: GradleReportServices
+    val services: GradleReportServices,
+    val parallelism: Int,
+    val cache: AnalysisCache?
 )
 
 internal class GradleReportServices(
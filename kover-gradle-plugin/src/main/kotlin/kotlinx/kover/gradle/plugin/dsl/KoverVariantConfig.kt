@@ -204,6 +204,9 @@ public interface KoverVariantSources {
  *
  *      // disable instrumentation of specified classes in test tasks
  *      excludedClasses.addAll("foo.bar.*Biz", "*\$Generated")
+ *
+ *      // measure only line coverage to reduce the instrumentation overhead
+ *      lineCoverageOnly = true
  *  }
  * ```
  */
@@ -235,6 +238,15 @@ public interface KoverProjectInstrumentation {
      * Classes in [excludedClasses] have priority over classes from [includedClasses].
      */
     public val includedClasses: SetProperty<String>
+
+    /**
+     * Measure only the line coverage in test tasks, `false` by default.
+     *
+     * Instrumented classes have less bytecode and lower overhead, but the branch coverage will not be available in the reports.
+     *
+     * Applicable only to the Kover coverage tool, JaCoCo always measures the branch coverage.
+     */
+    public val lineCoverageOnly: Property<Boolean>
 }
 
 /**
@@ -29,6 +29,7 @@ internal abstract class KoverCurrentProjectVariantsConfigImpl @Inject constructo
         instrumentation.excludedClasses.convention(emptySet())
         instrumentation.includedClasses.convention(emptySet())
         instrumentation.disabledForTestTasks.convention(emptySet())
+        instrumentation.lineCoverageOnly.convention(false)
     }
 
     override fun createVariant(variantName: String, block: Action<KoverVariantCreateConfig>) {
@@ -4,6 +4,7 @@
 
 package kotlinx.kover.gradle.plugin.tasks.reports
 
+import kotlinx.kover.features.jvm.AnalysisCache
 import kotlinx.kover.features.jvm.KoverFeatures
 import kotlinx.kover.gradle.plugin.commons.*
 import kotlinx.kover.gradle.plugin.tools.*
@@ -75,9 +76,16 @@ internal abstract class AbstractKoverReportTask : DefaultTask() {
 
     private val rootDir: File = project.rootDir
 
+    /**
+     * Number of threads to analyze class-files, specified by `kover.parallelism` Gradle property.
+     */
+    private val parallelism: Int = project.koverParallelism()
+
+    private val cache: AnalysisCache? = project.koverAnalysisCache()
+
     protected fun context(): ReportContext {
         val services = GradleReportServices(ant, obj, workerExecutor)
-        return ReportContext(collectAllFiles(), filters.get(), reportClasspath, temporaryDir, projectPath, services)
+        return ReportContext(collectAllFiles(), filters.get(), reportClasspath, temporaryDir, projectPath, services, parallelism, cache)
     }
 
     private fun collectAllFiles(): ArtifactContent {
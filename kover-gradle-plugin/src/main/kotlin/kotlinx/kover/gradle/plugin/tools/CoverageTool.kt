@@ -99,7 +99,9 @@ internal interface CoverageTool {
         tempDir: File,
         binReportFile: File,
         excludedClasses: Set<String>,
-        includedClasses: Set<String>
+        includedClasses: Set<String>,
+        lineCoverageOnly: Boolean,
+        classesSources: Set<File>
     ): List<String>
 
     /**
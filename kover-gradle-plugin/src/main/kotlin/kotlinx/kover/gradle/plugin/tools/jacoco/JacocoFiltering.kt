@@ -4,7 +4,7 @@
 
 package kotlinx.kover.gradle.plugin.tools.jacoco
 
-import kotlinx.kover.features.jvm.KoverFeatures.koverWildcardToRegex
+import kotlinx.kover.features.jvm.KoverFeatures.koverWildcardsToRegex
 import kotlinx.kover.gradle.plugin.commons.ReportFilters
 import org.jacoco.core.analysis.CoverageBuilder
 import org.jacoco.core.analysis.IClassCoverage
@@ -105,13 +105,13 @@ private fun IClassCoverage.filterClass(
     ancestors: Set<String>
 ): ClassFilteringResult {
     val binaryName = name.toBinaryName()
-    if (filters.excludesClasses.any { regex -> regex.matches(binaryName) }) {
+    if (filters.excludesClasses.matches(binaryName)) {
         return ClassFilteringResult.EXCLUDED
     }
 
     if (filters.excludesAnnotations.isNotEmpty() && annotated != null) {
         annotated.annotations.forEach { annotationName ->
-            if (filters.excludesAnnotations.any { regex -> regex.matches(annotationName) }) {
+            if (filters.excludesAnnotations.matches(annotationName)) {
                 return ClassFilteringResult.EXCLUDED
             }
         }
@@ -119,7 +119,7 @@ private fun IClassCoverage.filterClass(
 
     if (filters.excludeInheritedFrom.isNotEmpty()) {
         ancestors.forEach { ancestorName ->
-            if (filters.excludeInheritedFrom.any { regex -> regex.matches(ancestorName) }) {
+            if (filters.excludeInheritedFrom.matches(ancestorName)) {
                 return ClassFilteringResult.EXCLUDED
             }
         }
@@ -131,16 +131,16 @@ private fun IClassCoverage.filterClass(
 
     var included = true
     if (filters.includesClasses.isNotEmpty()) {
-       included = included && filters.includesClasses.any { regex -> regex.matches(binaryName) }
+       included = included && filters.includesClasses.matches(binaryName)
     }
     if (filters.includesAnnotations.isNotEmpty() && annotated != null) {
         included = included && annotated.annotations.any { annotationName ->
-            filters.includesAnnotations.any { regex -> regex.matches(annotationName) }
+            filters.includesAnnotations.matches(annotationName)
         }
     }
     if (filters.includeInheritedFrom.isNotEmpty()) {
         included = included && ancestors.any { ancestorName ->
-            filters.includeInheritedFrom.any { regex -> regex.matches(ancestorName) }
+            filters.includeInheritedFrom.matches(ancestorName)
         }
     }
 
@@ -162,7 +162,7 @@ private fun methodIsIncluded(
 ): Boolean {
     if (filters.excludesAnnotations.isNotEmpty()) {
         annotations.forEach { annotationName ->
-            if (filters.excludesAnnotations.any { regex -> regex.matches(annotationName) }) {
+            if (filters.excludesAnnotations.matches(annotationName)) {
                 return false
             }
         }
@@ -170,7 +170,7 @@ private fun methodIsIncluded(
 
     if (filters.includesAnnotations.isNotEmpty()) {
         annotations.forEach { annotationName ->
-            if (filters.includesAnnotations.any { regex -> regex.matches(annotationName) }) {
+            if (filters.includesAnnotations.matches(annotationName)) {
                 return true
             }
         }
@@ -184,12 +184,12 @@ private fun methodIsIncluded(
  * Compile filters to regular expressions.
  */
 private fun ReportFilters.toRegex(): RegexFilter {
-    val excludesClasses = excludesClasses.map { koverWildcardToRegex(it).toRegex() }
-    val excludesAnnotations = excludesAnnotations.map { koverWildcardToRegex(it).toRegex() }
-    val excludeInheritedFrom = excludeInheritedFrom.map { koverWildcardToRegex(it).toRegex() }
-    val includesClasses = includesClasses.map { koverWildcardToRegex(it).toRegex() }
-    val includesAnnotations = includesAnnotations.map { koverWildcardToRegex(it).toRegex() }
-    val includeInheritedFrom = includeInheritedFrom.map { koverWildcardToRegex(it).toRegex() }
+    val excludesClasses = WildcardsMatcher(excludesClasses)
+    val excludesAnnotations = WildcardsMatcher(excludesAnnotations)
+    val excludeInheritedFrom = WildcardsMatcher(excludeInheritedFrom)
+    val includesClasses = WildcardsMatcher(includesClasses)
+    val includesAnnotations = WildcardsMatcher(includesAnnotations)
+    val includeInheritedFrom = WildcardsMatcher(includeInheritedFrom)
     return RegexFilter(
         includesClasses,
         includesAnnotations,
@@ -204,12 +204,12 @@ private fun ReportFilters.toRegex(): RegexFilter {
  * Filters with precompiled regular expressions.
  */
 private class RegexFilter(
-    val includesClasses: List<Regex>,
-    val includesAnnotations: List<Regex>,
-    val includeInheritedFrom: List<Regex>,
-    val excludesClasses: List<Regex>,
-    val excludesAnnotations: List<Regex>,
-    val excludeInheritedFrom: List<Regex>,
+    val includesClasses: WildcardsMatcher,
+    val includesAnnotations: WildcardsMatcher,
+    val includeInheritedFrom: WildcardsMatcher,
+    val excludesClasses: WildcardsMatcher,
+    val excludesAnnotations: WildcardsMatcher,
+    val excludeInheritedFrom: WildcardsMatcher,
 ) {
     val hasAnyInclusionFilter: Boolean
         get() {
@@ -291,3 +291,14 @@ private fun buildAncestors(classes: Collection<IClassCoverage>): Map<String, Set
 private fun String.toBinaryName(): String {
     return removePrefix("L").removeSuffix(";").replace('/', '.')
 }
+
+/**
+ * All wildcards of one kind compiled into a single regular expression, so the name is checked in one pass.
+ */
+private class WildcardsMatcher(templates: Collection<String>) {
+    private val regex: Regex? = if (templates.isEmpty()) null else koverWildcardsToRegex(templates).toRegex()
+
+    fun isNotEmpty(): Boolean = regex != null
+
+    fun matches(name: String): Boolean = regex?.matches(name) ?: false
+}
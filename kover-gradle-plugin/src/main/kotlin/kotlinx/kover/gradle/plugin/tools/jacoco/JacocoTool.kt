@@ -31,8 +31,11 @@ internal class JacocoTool(override val variant: CoverageToolVariant) : CoverageT
         tempDir: File,
         binReportFile: File,
         excludedClasses: Set<String>,
-        includedClasses: Set<String>
+        includedClasses: Set<String>,
+        lineCoverageOnly: Boolean,
+        classesSources: Set<File>
     ): List<String> {
+        // JaCoCo agent always measures branch coverage and does not filter classes by their location
         return buildJvmAgentArgs(jarFile, binReportFile, excludedClasses, includedClasses)
     }
 
@@ -12,7 +12,6 @@ import kotlinx.kover.gradle.plugin.tools.writeToFile
 import java.io.File
 
 internal fun ReportContext.printCoverage(request: CoverageRequest, outputFile: File) {
-    // change API after https://youtrack.jetbrains.com/issue/IDEA-323463 will be implemented
     val coverage = KoverLegacyFeatures.evalCoverage(
         request.entity.convert(),
         request.metric.convert(),
@@ -20,7 +19,9 @@ internal fun ReportContext.printCoverage(request: CoverageRequest, outputFile: F
         tempDir,
         filters.toKoverFeatures(),
         files.reports.toList(),
-        files.outputs.toList()
+        files.outputs.toList(),
+        parallelism,
+        cache
     )
 
     if (coverage.isEmpty()) {
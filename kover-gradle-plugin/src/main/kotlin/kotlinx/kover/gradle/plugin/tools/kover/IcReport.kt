@@ -11,7 +11,9 @@ internal fun ReportContext.koverBinaryReport(binaryFile: File) {
         filters.toKoverFeatures(),
         tempDir,
         files.reports.toList(),
-        files.outputs.toList()
+        files.outputs.toList(),
+        parallelism,
+        cache
     )
 }
 
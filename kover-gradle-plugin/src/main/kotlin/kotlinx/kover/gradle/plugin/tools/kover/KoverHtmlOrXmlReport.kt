@@ -19,7 +19,9 @@ internal fun ReportContext.koverHtmlReport(htmlReportDir: File, htmlTitle: Strin
         files.outputs.toList(),
         files.sources.toList(),
         htmlTitle,
-        filters.toKoverFeatures()
+        filters.toKoverFeatures(),
+        parallelism,
+        cache
     )
 }
 
@@ -30,6 +32,8 @@ internal fun ReportContext.koverXmlReport(xmlReportFile: File, xmlTitle: String)
         files.outputs.toList(),
         files.sources.toList(),
         xmlTitle,
-        filters.toKoverFeatures()
+        filters.toKoverFeatures(),
+        parallelism,
+        cache
     )
 }
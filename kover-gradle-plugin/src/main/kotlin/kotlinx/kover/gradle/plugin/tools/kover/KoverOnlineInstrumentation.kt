@@ -11,20 +11,36 @@ internal fun buildJvmAgentArgs(
     tempDir: File,
     binReportFile: File,
     excludedClasses: Set<String>,
-    includedClasses: Set<String>
+    includedClasses: Set<String>,
+    lineCoverageOnly: Boolean,
+    classesSources: Set<File>
 ): List<String> {
     val argsFile = tempDir.resolve("kover-agent.args")
-    argsFile.writeAgentArgs(binReportFile, excludedClasses, includedClasses)
+    argsFile.writeAgentArgs(binReportFile, excludedClasses, includedClasses, lineCoverageOnly, classesSources)
 
     return mutableListOf("-javaagent:${jarFile.canonicalPath}=file:${argsFile.canonicalPath}")
 }
 
-private fun File.writeAgentArgs(binReportFile: File, excludedClasses: Set<String>, includedClasses: Set<String>) {
+private fun File.writeAgentArgs(
+    binReportFile: File,
+    excludedClasses: Set<String>,
+    includedClasses: Set<String>,
+    lineCoverageOnly: Boolean,
+    classesSources: Set<File>
+) {
     parentFile.mkdirs()
     val binReportPath = binReportFile.canonicalPath
 
     printWriter().use { pw ->
         pw.append("report.file=").appendLine(binReportPath)
+        // each fork writes its own report file, so the forks do not compete for one file on exit
+        pw.append("report.shards=").appendLine("true")
+        if (lineCoverageOnly) {
+            pw.append("mode=").appendLine("line")
+        }
+        classesSources.forEach { source ->
+            pw.append("source=").appendLine(source.canonicalPath)
+        }
         excludedClasses.forEach { e ->
             pw.append("exclude=").appendLine(e)
         }
@@ -37,9 +37,11 @@ internal class KoverTool(override val variant: CoverageToolVariant) : CoverageTo
         tempDir: File,
         binReportFile: File,
         excludedClasses: Set<String>,
-        includedClasses: Set<String>
+        includedClasses: Set<String>,
+        lineCoverageOnly: Boolean,
+        classesSources: Set<File>
     ): List<String> {
-        return buildJvmAgentArgs(jarFile, tempDir, binReportFile, excludedClasses, includedClasses)
+        return buildJvmAgentArgs(jarFile, tempDir, binReportFile, excludedClasses, includedClasses, lineCoverageOnly, classesSources)
     }
 
     override fun xmlReport(xmlFile: File, title: String, context: ReportContext) {
@@ -60,7 +62,9 @@ internal class KoverTool(override val variant: CoverageToolVariant) : CoverageTo
             context.tempDir,
             context.filters.toKoverFeatures(),
             context.files.reports.toList(),
-            context.files.outputs.toList()
+            context.files.outputs.toList(),
+            context.parallelism,
+            context.cache
         )
 
         val errorMessage = KoverLegacyFeatures.violationMessage(violations)
@@ -40,9 +40,27 @@ repositories {
     mavenCentral()
 }
 
+// sources shared with the Kover offline runtime
+sourceSets.main {
+    java.srcDir("../kover-offline-runtime/src/shared/java")
+}
+
 dependencies {
     compileOnly(libs.intellij.agent)
     fatJar(libs.intellij.agent)
+
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+// JUnit requires Java 8, the agent itself remains compatible with Java 7
+tasks.compileTestJava {
+    sourceCompatibility = JavaVersion.VERSION_1_8.toString()
+    targetCompatibility = JavaVersion.VERSION_1_8.toString()
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
 
 tasks.jar {
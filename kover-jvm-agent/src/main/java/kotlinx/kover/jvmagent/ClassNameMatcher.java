@@ -0,0 +1,184 @@
+package kotlinx.kover.jvmagent;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Class name filter compiled once at agent start.
+ * <p>
+ * All inclusions and all exclusions are compiled into one pattern each, so a class name is checked in a single pass
+ * instead of being checked against each pattern separately.
+ */
+class ClassNameMatcher {
+    private static final String regexMetacharacters = "<([{\\^-=$!|]})+.>";
+
+    private static final HashSet<Character> regexMetacharactersSet = new HashSet<Character>();
+
+    private static final String ANY_TAIL = ".*";
+
+    static {
+        for (int i = 0; i < regexMetacharacters.length(); i++) {
+            char c = regexMetacharacters.charAt(i);
+            regexMetacharactersSet.add(c);
+        }
+    }
+
+    private final Pattern inclusion;
+
+    private final Pattern exclusion;
+
+    ClassNameMatcher(List<String> inclusions, List<String> exclusions) {
+        this.inclusion = combine(inclusions);
+        this.exclusion = combine(exclusions);
+    }
+
+    /**
+     * Check whether the class with the given JVM internal name, e.g. {@code com/example/Foo}, should be instrumented.
+     */
+    boolean matches(String internalName) {
+        String className = internalName.replace('/', '.');
+        if (inclusion != null && !inclusion.matcher(className).matches()) {
+            return false;
+        }
+        return exclusion == null || !exclusion.matcher(className).matches();
+    }
+
+    private static Pattern combine(List<String> regexes) {
+        if (regexes.isEmpty()) {
+            return null;
+        }
+        if (regexes.size() == 1) {
+            return Pattern.compile(regexes.get(0));
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (String regex : regexes) {
+            if (builder.length() > 0) {
+                builder.append('|');
+            }
+            builder.append("(?:").append(regex).append(')');
+        }
+        return Pattern.compile(builder.toString());
+    }
+
+    /**
+     * Combine wildcards into a single regular expression that matches a string if it matches at least one of the wildcards.
+     * <p>
+     * The literal prefixes of the wildcards (usually package names) are merged into a prefix tree,
+     * so the common prefix is checked once instead of checking it separately for each wildcard.
+     */
+    static String wildcardsToCombinedRegex(List<String> wildcards) {
+        RegexTrie trie = new RegexTrie();
+        for (String wildcard : wildcards) {
+            int literalEnd = wildcard.length();
+            for (int i = 0; i < wildcard.length(); i++) {
+                char c = wildcard.charAt(i);
+                if (c == '*' || c == '?' || c == '#') {
+                    literalEnd = i;
+                    break;
+                }
+            }
+            trie.add(wildcard.substring(0, literalEnd), wildcardsToRegex(wildcard.substring(literalEnd)));
+        }
+        StringBuilder builder = new StringBuilder();
+        trie.appendTo(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Replaces characters `*` or `.` to `.*`, `#` to `[^.]*` and `?` to `.` regexp characters.
+     */
+    static String wildcardsToRegex(String value) {
+        // in most cases, the characters `*` or `.` will be present therefore, we increase the capacity in advance
+        final StringBuilder builder = new StringBuilder(value.length() * 2);
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (regexMetacharactersSet.contains(c)) {
+                builder.append('\\').append(c);
+            } else if (c == '*') {
+                builder.append(".*");
+            } else if (c == '?') {
+                builder.append('.');
+            } else if (c == '#') {
+                builder.append("[^.]*");
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void appendLiteral(StringBuilder builder, char c) {
+        if (regexMetacharactersSet.contains(c)) {
+            builder.append('\\');
+        }
+        builder.append(c);
+    }
+
+    /**
+     * Prefix tree of literal strings, each of which ends with a tail in the form of a regular expression.
+     */
+    private static class RegexTrie {
+        private final TreeMap<Character, RegexTrie> children = new TreeMap<Character, RegexTrie>();
+        private final TreeSet<String> tails = new TreeSet<String>();
+
+        void add(String literal, String tailRegex) {
+            RegexTrie node = this;
+            for (int i = 0; i < literal.length(); i++) {
+                char c = literal.charAt(i);
+                RegexTrie child = node.children.get(c);
+                if (child == null) {
+                    child = new RegexTrie();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.tails.add(tailRegex);
+        }
+
+        void appendTo(StringBuilder builder) {
+            RegexTrie node = this;
+            // chains of nodes with single child are written as a literal
+            while (node.tails.isEmpty() && node.children.size() == 1) {
+                Map.Entry<Character, RegexTrie> entry = node.children.firstEntry();
+                appendLiteral(builder, entry.getKey());
+                node = entry.getValue();
+            }
+
+            // any tail `.*` matches all strings in the subtree
+            if (node.tails.contains(ANY_TAIL)) {
+                builder.append(ANY_TAIL);
+                return;
+            }
+
+            if (node.children.isEmpty() && node.tails.size() == 1) {
+                builder.append(node.tails.first());
+                return;
+            }
+
+            builder.append("(?:");
+            boolean first = true;
+            for (Map.Entry<Character, RegexTrie> entry : node.children.entrySet()) {
+                if (!first) {
+                    builder.append('|');
+                }
+                first = false;
+                appendLiteral(builder, entry.getKey());
+                entry.getValue().appendTo(builder);
+            }
+            for (String tail : node.tails) {
+                if (!first) {
+                    builder.append('|');
+                }
+                first = false;
+                builder.append(tail);
+            }
+            builder.append(')');
+        }
+    }
+}
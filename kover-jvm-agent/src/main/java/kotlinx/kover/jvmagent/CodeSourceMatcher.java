@@ -0,0 +1,74 @@
+package kotlinx.kover.jvmagent;
+
+import java.io.File;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Filter of classes by the location from which they were loaded: a directory with class-files or a jar-file.
+ * <p>
+ * Each source is either a path to a directory or a jar-file, or a path with {@code *} and {@code ?} wildcards, e.g. {@code /libs/*.jar}.
+ * Relative paths, including paths with wildcards, are resolved against the working directory.
+ * Classes of the same location share the code source, so the result is calculated once for each location.
+ */
+class CodeSourceMatcher {
+    private final Pattern pattern;
+
+    private final ConcurrentHashMap<String, Boolean> locations = new ConcurrentHashMap<String, Boolean>();
+
+    CodeSourceMatcher(List<String> sources) {
+        List<String> wildcards = new ArrayList<String>();
+        for (String source : sources) {
+            // locations of classes are absolute, so relative sources are resolved against the working directory
+            String path = new File(source).getAbsolutePath();
+            if (source.indexOf('*') >= 0 || source.indexOf('?') >= 0) {
+                wildcards.add(path);
+            } else {
+                // the directory itself and all the files in it
+                wildcards.add(path);
+                wildcards.add(path + File.separator + "*");
+            }
+        }
+        this.pattern = Pattern.compile(ClassNameMatcher.wildcardsToCombinedRegex(wildcards));
+    }
+
+    /**
+     * Check whether the class with the given protection domain was loaded from one of the sources.
+     * <p>
+     * Classes without a code source, e.g. generated at runtime, and classes not loaded from the file system are rejected.
+     */
+    boolean matches(ProtectionDomain protectionDomain) {
+        if (protectionDomain == null) {
+            return false;
+        }
+        CodeSource codeSource = protectionDomain.getCodeSource();
+        if (codeSource == null) {
+            return false;
+        }
+        URL location = codeSource.getLocation();
+        if (location == null || !"file".equals(location.getProtocol())) {
+            return false;
+        }
+
+        String key = location.toExternalForm();
+        Boolean matches = locations.get(key);
+        if (matches == null) {
+            matches = pattern.matcher(toPath(location)).matches();
+            locations.put(key, matches);
+        }
+        return matches;
+    }
+
+    private static String toPath(URL location) {
+        try {
+            return new File(location.toURI()).getAbsolutePath();
+        } catch (Exception e) {
+            return new File(location.getPath()).getAbsolutePath();
+        }
+    }
+}
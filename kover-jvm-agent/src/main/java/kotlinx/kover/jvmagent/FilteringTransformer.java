@@ -0,0 +1,77 @@
+package kotlinx.kover.jvmagent;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+
+/**
+ * Transformer that rejects classes which should not be instrumented before passing them to the coverage transformer.
+ * <p>
+ * Test JVMs load tens of thousands of JDK classes, so bootstrap and platform classes are rejected first
+ * by the class loader and the package prefix, without matching the class name against the filters.
+ * <p>
+ * If the sources of the project classes are specified, classes loaded from other locations (e.g. dependency jars) are rejected too.
+ */
+class FilteringTransformer implements ClassFileTransformer {
+    /**
+     * Packages of JDK classes, the prefixes are specified in the JVM internal form.
+     * Other JDK packages, e.g. {@code javax}, are also used by libraries, so their classes are rejected only by the class loader.
+     */
+    private static final String[] PLATFORM_PACKAGES = {"java/", "jdk/", "sun/"};
+
+    private final ClassFileTransformer delegate;
+
+    private final ClassNameMatcher matcher;
+
+    private final CodeSourceMatcher sourceMatcher;
+
+    private final ClassLoader platformLoader;
+
+    FilteringTransformer(ClassFileTransformer delegate, ClassNameMatcher matcher, CodeSourceMatcher sourceMatcher) {
+        this.delegate = delegate;
+        this.matcher = matcher;
+        this.sourceMatcher = sourceMatcher;
+        this.platformLoader = findPlatformLoader();
+    }
+
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+        if (loader == null || loader == platformLoader || className == null || isPlatformClass(className)) {
+            return null;
+        }
+        if (sourceMatcher != null && !sourceMatcher.matches(protectionDomain)) {
+            return null;
+        }
+        if (!matcher.matches(className)) {
+            return null;
+        }
+        return delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+    }
+
+    private static boolean isPlatformClass(String className) {
+        for (String prefix : PLATFORM_PACKAGES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the platform class loader (the extension class loader before Java 9), which is the topmost non-bootstrap loader.
+     * <p>
+     * The method from {@code ClassLoader} is not used because it is absent in Java 8.
+     */
+    private static ClassLoader findPlatformLoader() {
+        ClassLoader systemLoader = ClassLoader.getSystemClassLoader();
+        if (systemLoader == null) {
+            return null;
+        }
+
+        ClassLoader loader = systemLoader;
+        while (loader.getParent() != null) {
+            loader = loader.getParent();
+        }
+        // the application classes should never be rejected
+        return loader == systemLoader ? null : loader;
+    }
+}
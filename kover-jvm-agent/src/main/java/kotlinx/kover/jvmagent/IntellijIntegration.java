@@ -2,6 +2,7 @@ package kotlinx.kover.jvmagent;
 
 import com.intellij.rt.coverage.main.CoveragePremain;
 
+import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,11 +18,6 @@ public class IntellijIntegration {
      */
     private static final boolean CALCULATE_FOR_UNLOADED_CLASSES = false;
 
-    /**
-     * Create hit block only for line, false adds the ability to count branches
-     */
-    private static final boolean LINES_ONLY_MODE = false;
-
     private IntellijIntegration() {
         // no-op
     }
@@ -30,7 +26,15 @@ public class IntellijIntegration {
         setIntellijSystemProperties();
         String intelliJArgsString = joinIntellijArgs(createIntellijArgs(settings));
 
-        CoveragePremain.premain(intelliJArgsString, instrumentation);
+        final ClassNameMatcher matcher = new ClassNameMatcher(settings.inclusions, settings.exclusions);
+        final CodeSourceMatcher sourceMatcher = settings.sources.isEmpty() ? null : new CodeSourceMatcher(settings.sources);
+        Instrumentation intellijInstrumentation = TransformerWrapping.wrap(instrumentation, new TransformerWrapping.Wrapper() {
+            public ClassFileTransformer wrap(ClassFileTransformer transformer) {
+                return new FilteringTransformer(transformer, matcher, sourceMatcher);
+            }
+        });
+
+        CoveragePremain.premain(intelliJArgsString, intellijInstrumentation);
     }
 
     private static void setIntellijSystemProperties() {
@@ -81,15 +85,11 @@ public class IntellijIntegration {
         args.add(Boolean.toString(TRACKING_PER_TEST));
         args.add(Boolean.toString(CALCULATE_FOR_UNLOADED_CLASSES));
         args.add(Boolean.toString(settings.appendToReportFile));
-        args.add(Boolean.toString(LINES_ONLY_MODE));
-
-        args.addAll(settings.inclusions);
-
-        if (!settings.exclusions.isEmpty()) {
-            args.add("-exclude");
-            args.addAll(settings.exclusions);
-        }
+        // create hit block only for line, false adds the ability to count branches
+        args.add(Boolean.toString(settings.linesOnly));
 
+        // inclusions and exclusions are not passed, classes are already filtered by the transformer wrapping IntelliJ transformer,
+        // so the class names are not matched twice
         return args;
     }
 
@@ -6,16 +6,22 @@ import java.util.List;
 public class KoverAgentSettings {
     public String reportFilePath = null;
     public boolean appendToReportFile = true;
+    public boolean shards = false;
+    public boolean linesOnly = false;
     public List<String> inclusions = new ArrayList<String>();
     public List<String> exclusions = new ArrayList<String>();
+    public List<String> sources = new ArrayList<String>();
 
     @Override
     public String toString() {
         return "KoverAgentSettings{" +
                 "reportFilePath='" + reportFilePath + '\'' +
                 ", appendToReportFile=" + appendToReportFile +
+                ", shards=" + shards +
+                ", linesOnly=" + linesOnly +
                 ", inclusions=" + inclusions +
                 ", exclusions=" + exclusions +
+                ", sources=" + sources +
                 '}';
     }
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package kotlinx.kover.jvmagent;
 
+import kotlinx.kover.shared.ShardFiles;
+
 import java.io.*;
 import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 
 public class KoverJvmAgentPremain {
@@ -11,31 +13,29 @@ public class KoverJvmAgentPremain {
     private static final String FILE_PREFIX_IN_ARGS = "file:";
     private static final String FILE_PATH_ARGUMENT = "report.file=";
     private static final String APPEND_ARGUMENT = "report.append=";
+    private static final String SHARDS_ARGUMENT = "report.shards=";
     private static final String EXCLUDE_WITH_WILDCARDS_ARGUMENT = "exclude=";
     private static final String EXCLUDE_WITH_REGEX_ARGUMENT = "exclude.regex=";
     private static final String INCLUDE_WITH_WILDCARDS_ARGUMENT = "include=";
     private static final String INCLUDE_WITH_REGEX_ARGUMENT = "include.regex=";
+    private static final String MODE_ARGUMENT = "mode=";
+    private static final String SOURCE_ARGUMENT = "source=";
 
-    private static final String regexMetacharacters = "<([{\\^-=$!|]})+.>";
-
-    private static final HashSet<Character> regexMetacharactersSet = new HashSet<Character>();
+    private static final String LINE_MODE = "line";
+    private static final String BRANCH_MODE = "branch";
 
     private static final List<String> arguments = Arrays.asList(
             FILE_PATH_ARGUMENT,
             APPEND_ARGUMENT,
+            SHARDS_ARGUMENT,
             EXCLUDE_WITH_WILDCARDS_ARGUMENT,
             EXCLUDE_WITH_REGEX_ARGUMENT,
             INCLUDE_WITH_WILDCARDS_ARGUMENT,
-            INCLUDE_WITH_REGEX_ARGUMENT
+            INCLUDE_WITH_REGEX_ARGUMENT,
+            MODE_ARGUMENT,
+            SOURCE_ARGUMENT
     );
 
-    static {
-        for (int i = 0; i < regexMetacharacters.length(); i++) {
-            char c = regexMetacharacters.charAt(i);
-            regexMetacharactersSet.add(c);
-        }
-    }
-
     public static void premain(String argsString, Instrumentation instrumentation) throws Exception {
         KoverAgentSettings settings = readSettingsFromFile(extractArgsFile(argsString));
         IntellijIntegration.callPremain(settings, instrumentation);
@@ -54,6 +54,8 @@ public class KoverJvmAgentPremain {
 
     private static KoverAgentSettings readSettingsFromFile(File file) throws IOException {
         KoverAgentSettings settings = new KoverAgentSettings();
+        List<String> includeWildcards = new ArrayList<String>();
+        List<String> excludeWildcards = new ArrayList<String>();
 
         BufferedReader reader = null;
         try {
@@ -65,12 +67,12 @@ public class KoverJvmAgentPremain {
                     settings.reportFilePath = line.substring(FILE_PATH_ARGUMENT.length());
                 } else if (line.startsWith(EXCLUDE_WITH_WILDCARDS_ARGUMENT)) {
                     String wildcards = line.substring(EXCLUDE_WITH_WILDCARDS_ARGUMENT.length());
-                    settings.exclusions.add(wildcardsToRegex(wildcards));
+                    excludeWildcards.add(wildcards);
                 } else if (line.startsWith(EXCLUDE_WITH_REGEX_ARGUMENT)) {
                     settings.exclusions.add(line.substring(EXCLUDE_WITH_REGEX_ARGUMENT.length()));
                 } else if (line.startsWith(INCLUDE_WITH_WILDCARDS_ARGUMENT)) {
                     String wildcards = line.substring(INCLUDE_WITH_WILDCARDS_ARGUMENT.length());
-                    settings.inclusions.add(wildcardsToRegex(wildcards));
+                    includeWildcards.add(wildcards);
                 } else if (line.startsWith(INCLUDE_WITH_REGEX_ARGUMENT)) {
                     settings.inclusions.add(line.substring(INCLUDE_WITH_REGEX_ARGUMENT.length()));
                 } else if (line.startsWith(APPEND_ARGUMENT)) {
@@ -79,6 +81,23 @@ public class KoverJvmAgentPremain {
                         throw new IllegalArgumentException("Incorrect value for argument " + APPEND_ARGUMENT + " in Kover JVM agent arguments file, expected true or false");
                     }
                     settings.appendToReportFile = Boolean.parseBoolean(value);
+                } else if (line.startsWith(SHARDS_ARGUMENT)) {
+                    String value = line.substring(SHARDS_ARGUMENT.length());
+                    if (!isBoolean(value)) {
+                        throw new IllegalArgumentException("Incorrect value for argument " + SHARDS_ARGUMENT + " in Kover JVM agent arguments file, expected true or false");
+                    }
+                    settings.shards = Boolean.parseBoolean(value);
+                } else if (line.startsWith(SOURCE_ARGUMENT)) {
+                    settings.sources.add(line.substring(SOURCE_ARGUMENT.length()));
+                } else if (line.startsWith(MODE_ARGUMENT)) {
+                    String value = line.substring(MODE_ARGUMENT.length());
+                    if (LINE_MODE.equals(value)) {
+                        settings.linesOnly = true;
+                    } else if (BRANCH_MODE.equals(value)) {
+                        settings.linesOnly = false;
+                    } else {
+                        throw new IllegalArgumentException("Incorrect value for argument " + MODE_ARGUMENT + " in Kover JVM agent arguments file, expected " + LINE_MODE + " or " + BRANCH_MODE);
+                    }
                 } else if (!line.isEmpty()) {
                     // skip empty line
                     throw new IllegalArgumentException("Unrecognized line in Kover arguments file: " + line
@@ -101,31 +120,21 @@ public class KoverJvmAgentPremain {
             throw new IllegalArgumentException("Path to the report file is required, add " + FILE_PATH_ARGUMENT + " argument to the args file");
         }
 
-        return settings;
-    }
+        // wildcards are combined into one regex, so each class name is checked against a single pattern
+        if (!includeWildcards.isEmpty()) {
+            settings.inclusions.add(0, ClassNameMatcher.wildcardsToCombinedRegex(includeWildcards));
+        }
+        if (!excludeWildcards.isEmpty()) {
+            settings.exclusions.add(0, ClassNameMatcher.wildcardsToCombinedRegex(excludeWildcards));
+        }
 
-    /**
-     * Replaces characters `*` or `.` to `.*`, `#` to `[^.]*` and `?` to `.` regexp characters.
-     */
-    private static String wildcardsToRegex(String value) {
-        // in most cases, the characters `*` or `.` will be present therefore, we increase the capacity in advance
-        final StringBuilder builder = new StringBuilder(value.length() * 2);
-
-        for (int i = 0; i < value.length(); i++) {
-            char c = value.charAt(i);
-            if (regexMetacharactersSet.contains(c)) {
-                builder.append('\\').append(c);
-            } else if (c == '*') {
-                builder.append(".*");
-            } else if (c == '?') {
-                builder.append('.');
-            } else if (c == '#') {
-                builder.append("[^.]*");
-            } else {
-                builder.append(c);
-            }
+        if (settings.shards) {
+            // the file of each process is unique, so there is nothing to append to
+            settings.reportFilePath = ShardFiles.shardPath(settings.reportFilePath);
+            settings.appendToReportFile = false;
         }
-        return builder.toString();
+
+        return settings;
     }
 
 }
@@ -0,0 +1,69 @@
+package kotlinx.kover.jvmagent;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Interception of the class-file transformers registered by IntelliJ agent.
+ * <p>
+ * IntelliJ agent registers its transformer itself, so the {@link Instrumentation} passed to it is replaced with a proxy
+ * that wraps every added transformer and removes the wrapper when the original transformer is removed.
+ * A dynamic proxy is used because the set of methods of {@link Instrumentation} depends on the JVM version.
+ */
+class TransformerWrapping {
+    /**
+     * Wrapper applied to each transformer added to the instrumentation.
+     */
+    interface Wrapper {
+        ClassFileTransformer wrap(ClassFileTransformer transformer);
+    }
+
+    private TransformerWrapping() {
+        // no-op
+    }
+
+    static Instrumentation wrap(final Instrumentation instrumentation, final Wrapper wrapper) {
+        // wrappers of the added transformers, so that the removal of the original transformer removes its wrapper
+        final Map<ClassFileTransformer, ClassFileTransformer> wrappers = new IdentityHashMap<ClassFileTransformer, ClassFileTransformer>();
+
+        InvocationHandler handler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (args != null && args.length > 0 && args[0] instanceof ClassFileTransformer) {
+                    ClassFileTransformer transformer = (ClassFileTransformer) args[0];
+                    if ("addTransformer".equals(method.getName())) {
+                        ClassFileTransformer wrapped = wrapper.wrap(transformer);
+                        synchronized (wrappers) {
+                            wrappers.put(transformer, wrapped);
+                        }
+                        args[0] = wrapped;
+                    } else if ("removeTransformer".equals(method.getName())) {
+                        ClassFileTransformer wrapped;
+                        synchronized (wrappers) {
+                            wrapped = wrappers.remove(transformer);
+                        }
+                        if (wrapped != null) {
+                            args[0] = wrapped;
+                        }
+                    }
+                }
+                try {
+                    return method.invoke(instrumentation, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+
+        return (Instrumentation) Proxy.newProxyInstance(
+                Instrumentation.class.getClassLoader(),
+                new Class<?>[]{Instrumentation.class},
+                handler
+        );
+    }
+}
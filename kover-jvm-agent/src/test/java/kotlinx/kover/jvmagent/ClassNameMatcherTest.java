@@ -0,0 +1,108 @@
+package kotlinx.kover.jvmagent;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassNameMatcherTest {
+    /**
+     * Wildcards and the expected matching of class names, the same cases are checked by the tests of Kover Features.
+     */
+    private static final File CASES_FILE = new File("../kover-features-jvm/src/test/resources/wildcards/cases.txt");
+
+    @Test
+    void sharedCasesAreMatchedByCombinedAndSeparateRegexes() throws IOException {
+        for (Map.Entry<List<String>, Map<String, Boolean>> testCase : readCases(CASES_FILE).entrySet()) {
+            List<String> wildcards = testCase.getKey();
+            Pattern combined = Pattern.compile(ClassNameMatcher.wildcardsToCombinedRegex(wildcards));
+
+            for (Map.Entry<String, Boolean> expected : testCase.getValue().entrySet()) {
+                String className = expected.getKey();
+                assertEquals(expected.getValue(), combined.matcher(className).matches(), "Combined regex, class name '" + className + "' with wildcards " + wildcards);
+
+                boolean separate = false;
+                for (String wildcard : wildcards) {
+                    separate |= Pattern.matches(ClassNameMatcher.wildcardsToRegex(wildcard), className);
+                }
+                assertEquals(expected.getValue(), separate, "Separate regexes, class name '" + className + "' with wildcards " + wildcards);
+            }
+        }
+    }
+
+    @Test
+    void anyTailSubsumesOtherWildcards() {
+        List<String> wildcards = Arrays.asList("com.example.*", "com.example.Foo", "com.example.sub.*Test");
+        assertEquals("com\\.example\\..*", ClassNameMatcher.wildcardsToCombinedRegex(wildcards));
+    }
+
+    @Test
+    void literalPrefixIsWrittenOnce() {
+        List<String> wildcards = Arrays.asList("com.example.Foo", "com.example.Bar");
+        assertEquals("com\\.example\\.(?:Bar|Foo)", ClassNameMatcher.wildcardsToCombinedRegex(wildcards));
+    }
+
+    @Test
+    void exclusionsHavePriority() {
+        ClassNameMatcher matcher = new ClassNameMatcher(
+                Collections.singletonList(ClassNameMatcher.wildcardsToCombinedRegex(Arrays.asList("com.example.*", "org.example.Foo"))),
+                Collections.singletonList(ClassNameMatcher.wildcardsToCombinedRegex(Arrays.asList("com.example.internal.*", "*Test")))
+        );
+
+        assertTrue(matcher.matches("com/example/Foo"));
+        assertTrue(matcher.matches("org/example/Foo"));
+        assertFalse(matcher.matches("com/example/internal/Foo"));
+        assertFalse(matcher.matches("com/example/FooTest"));
+        assertFalse(matcher.matches("org/example/Bar"));
+    }
+
+    @Test
+    void regexesAndWildcardsAreCombined() {
+        ClassNameMatcher matcher = new ClassNameMatcher(
+                Arrays.asList(ClassNameMatcher.wildcardsToCombinedRegex(Collections.singletonList("com.example.*")), "org\\.example\\.[A-C].*"),
+                Collections.<String>emptyList()
+        );
+
+        assertTrue(matcher.matches("com/example/Foo"));
+        assertTrue(matcher.matches("org/example/Bar"));
+        assertFalse(matcher.matches("org/example/Foo"));
+    }
+
+    @Test
+    void withoutInclusionsAllClassesExceptExcludedMatch() {
+        ClassNameMatcher matcher = new ClassNameMatcher(
+                Collections.<String>emptyList(),
+                Collections.singletonList(ClassNameMatcher.wildcardsToCombinedRegex(Collections.singletonList("com.example.internal.*")))
+        );
+
+        assertTrue(matcher.matches("com/example/Foo"));
+        assertTrue(matcher.matches("Foo"));
+        assertFalse(matcher.matches("com/example/internal/Foo"));
+    }
+
+    private static Map<List<String>, Map<String, Boolean>> readCases(File file) throws IOException {
+        Map<List<String>, Map<String, Boolean>> cases = new LinkedHashMap<List<String>, Map<String, Boolean>>();
+        Map<String, Boolean> current = null;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith("wildcards:")) {
+                current = new LinkedHashMap<String, Boolean>();
+                cases.put(Arrays.asList(line.substring("wildcards:".length()).trim().split(" ")), current);
+            } else if (line.startsWith("+") || line.startsWith("-")) {
+                current.put(line.length() > 2 ? line.substring(2) : "", line.startsWith("+"));
+            }
+        }
+        return cases;
+    }
+}
@@ -0,0 +1,29 @@
+package kotlinx.kover.jvmagent;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeSourceMatcherTest {
+    @Test
+    void relativeSourcesAreResolvedAgainstWorkingDirectory() throws Exception {
+        CodeSourceMatcher matcher = new CodeSourceMatcher(Arrays.asList("build/classes", "build/libs/*.jar"));
+
+        assertTrue(matcher.matches(domain(new File("build/classes"))));
+        assertTrue(matcher.matches(domain(new File("build/libs/app.jar"))));
+        assertFalse(matcher.matches(domain(new File("build/other/app.jar"))));
+        assertFalse(matcher.matches(domain(new File("/libs/app.jar"))));
+    }
+
+    private static ProtectionDomain domain(File location) throws Exception {
+        CodeSource codeSource = new CodeSource(location.getAbsoluteFile().toURI().toURL(), (Certificate[]) null);
+        return new ProtectionDomain(codeSource, null);
+    }
+}
@@ -0,0 +1,58 @@
+package kotlinx.kover.jvmagent;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransformerWrappingTest {
+    @Test
+    void removalOfOriginalTransformerRemovesWrapper() {
+        final List<ClassFileTransformer> registered = new ArrayList<ClassFileTransformer>();
+        Instrumentation instrumentation = (Instrumentation) Proxy.newProxyInstance(
+                Instrumentation.class.getClassLoader(),
+                new Class<?>[]{Instrumentation.class},
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("addTransformer".equals(method.getName())) {
+                            registered.add((ClassFileTransformer) args[0]);
+                            return null;
+                        }
+                        if ("removeTransformer".equals(method.getName())) {
+                            return registered.remove(args[0]);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+        );
+
+        Instrumentation wrapping = TransformerWrapping.wrap(instrumentation, new TransformerWrapping.Wrapper() {
+            public ClassFileTransformer wrap(ClassFileTransformer transformer) {
+                return new NoOpTransformer();
+            }
+        });
+
+        ClassFileTransformer original = new NoOpTransformer();
+        wrapping.addTransformer(original);
+        assertEquals(1, registered.size());
+        assertTrue(registered.get(0) != original);
+
+        assertTrue(wrapping.removeTransformer(original));
+        assertTrue(registered.isEmpty());
+    }
+
+    private static class NoOpTransformer implements ClassFileTransformer {
+        public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined, ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+            return null;
+        }
+    }
+}
@@ -37,7 +37,7 @@ class HtmlReportMojo: AbstractReportTaskMojo() {
         filters: ClassFilters
     ) {
         val htmlDir = reportOutputDirectory.resolve(htmlDirName)
-        KoverLegacyFeatures.generateHtmlReport(htmlDir, charset, binaryReports, outputDirs, sourceDirs, title, filters)
+        KoverLegacyFeatures.generateHtmlReport(htmlDir, charset, binaryReports, outputDirs, sourceDirs, title, filters, parallelism, analysisCache())
 
         val clickablePath = URI(
             "file",
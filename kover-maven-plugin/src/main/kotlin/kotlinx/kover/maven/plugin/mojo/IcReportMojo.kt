@@ -31,7 +31,9 @@ class IcReportMojo : AbstractCoverageTaskMojo() {
             filters,
             tempDirectory(),
             binaryReports,
-            outputDirs
+            outputDirs,
+            parallelism,
+            analysisCache()
         )
     }
 }
\ No newline at end of file
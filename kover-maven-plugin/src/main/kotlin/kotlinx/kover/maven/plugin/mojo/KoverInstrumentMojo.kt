@@ -32,6 +32,14 @@ class KoverInstrumentMojo : AbstractKoverMojo() {
     @Parameter
     var uninstrumentedClasses: List<String>? = null
 
+    /**
+     * Measure only the line coverage, instrumented classes have less bytecode and lower overhead.
+     *
+     * `false` by default.
+     */
+    @Parameter(property = "kover.lineCoverageOnly", defaultValue = "false")
+    var lineCoverageOnly: Boolean = false
+
     @Parameter(defaultValue = "\${project.build.directory}/${Constants.BIN_REPORT_PATH}", readonly = true)
     lateinit var binaryReportFile: File
 
@@ -57,6 +65,9 @@ class KoverInstrumentMojo : AbstractKoverMojo() {
         file.parentFile.mkdirs()
         file.printWriter().use { writer ->
             writer.append("report.file=").appendLine(binaryReportFile.canonicalPath)
+            if (lineCoverageOnly) {
+                writer.append("mode=").appendLine("line")
+            }
             uninstrumentedClasses?.forEach { e ->
                 writer.append("exclude=").appendLine(e)
             }
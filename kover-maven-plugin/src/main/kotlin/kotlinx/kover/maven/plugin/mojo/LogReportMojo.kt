@@ -41,7 +41,9 @@ class LogReportMojo : AbstractCoverageTaskMojo() {
             tempDirectory(),
             filters,
             binaryReports,
-            outputDirs
+            outputDirs,
+            parallelism,
+            analysisCache()
         )
 
         coverageValues.forEach { coverageValue ->
@@ -39,27 +39,9 @@ class VerifyMojo : AbstractCoverageTaskMojo() {
 
         val tempDir = tempDirectory()
 
-        val violations = mutableListOf<RuleViolations>()
-        // verify rules with filters inherited from mojo
-        val rulesWithDefaultFilters = rules.filter { filter -> filter.filters == null }
-        violations += KoverLegacyFeatures.verify(
-            rulesWithDefaultFilters.map { it.convert() },
-            tempDir,
-            filters,
-            binaryReports,
-            outputDirs
-        )
-
-        // verify rules with own filters
-        rules.filter { filter -> filter.filters != null }.forEach { rule ->
-            violations += KoverLegacyFeatures.verify(
-                listOf(rule.convert()),
-                tempDir,
-                rule.filters!!.convert(),
-                binaryReports,
-                outputDirs
-            )
-        }
+        // rules without own filters use filters inherited from mojo, all rules are verified in one pass
+        val filteredRules = rules.map { rule -> FilteredRule(rule.convert(), rule.filters?.convert() ?: filters) }
+        val violations = KoverLegacyFeatures.verifyWithFilters(filteredRules, tempDir, binaryReports, outputDirs, parallelism, analysisCache())
 
         if (violations.isEmpty()) {
             log.info("Coverage rule checks passed successfully")
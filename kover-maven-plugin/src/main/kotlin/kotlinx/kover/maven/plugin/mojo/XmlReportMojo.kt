@@ -30,6 +30,6 @@ class XmlReportMojo: AbstractCoverageTaskMojo() {
         sourceDirs: List<File>,
         filters: ClassFilters
     ) {
-        KoverLegacyFeatures.generateXmlReport(xmlFile, binaryReports, outputDirs, sourceDirs, title, filters)
+        KoverLegacyFeatures.generateXmlReport(xmlFile, binaryReports, outputDirs, sourceDirs, title, filters, parallelism, analysisCache())
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@
 
 package kotlinx.kover.maven.plugin.mojo.abstracts
 
+import kotlinx.kover.features.jvm.AnalysisCache
 import kotlinx.kover.features.jvm.ClassFilters
 import kotlinx.kover.features.jvm.KoverFeatures
 import kotlinx.kover.maven.plugin.Constants
@@ -15,6 +16,7 @@ import org.apache.maven.project.MavenProject
 import org.codehaus.plexus.util.xml.Xpp3Dom
 import java.io.File
 import java.nio.file.Files
+import java.util.concurrent.TimeUnit
 import kotlin.io.path.Path
 
 /**
@@ -43,6 +45,42 @@ abstract class AbstractCoverageTaskMojo : AbstractKoverMojo() {
     @Parameter
     private val additionalBinaryReports: MutableList<File> = mutableListOf()
 
+    /**
+     * Number of threads used to analyze class-files of the project and its dependencies.
+     *
+     * Directories with class-files are analyzed in parallel if the value is greater than `1`.
+     *
+     * `1` by default.
+     */
+    @Parameter(property = "kover.parallelism", defaultValue = "1")
+    protected var parallelism: Int = 1
+
+    /**
+     * Directory of the cache of class-files analysis.
+     *
+     * If specified, the analysis of unchanged directories with class-files is reused between builds.
+     *
+     * Cache is disabled by default.
+     */
+    @Parameter(property = "kover.cache.dir")
+    private var cacheDirectory: File? = null
+
+    /**
+     * Maximum size of the cache of class-files analysis in megabytes.
+     *
+     * `1024` by default.
+     */
+    @Parameter(property = "kover.cache.maxSizeMb", defaultValue = "1024")
+    private var cacheMaxSizeMb: Long = 1024
+
+    /**
+     * Maximum number of days for which an unused cache entry of class-files analysis is stored.
+     *
+     * `7` by default.
+     */
+    @Parameter(property = "kover.cache.maxAgeDays", defaultValue = "7")
+    private var cacheMaxAgeDays: Long = 7
+
     /**
      * Project modules involved in the build.
      */
@@ -73,6 +111,14 @@ abstract class AbstractCoverageTaskMojo : AbstractKoverMojo() {
             .toFile()
     }
 
+    /**
+     * Cache of class-files analysis, `null` if cache is disabled.
+     */
+    protected fun analysisCache(): AnalysisCache? {
+        val dir = cacheDirectory ?: return null
+        return AnalysisCache(dir, cacheMaxSizeMb * 1024 * 1024, TimeUnit.DAYS.toMillis(cacheMaxAgeDays))
+    }
+
     /**
      * Get filters as Kover filters classes.
      */
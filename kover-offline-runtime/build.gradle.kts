@@ -35,9 +35,28 @@ repositories {
     mavenCentral()
 }
 
+// sources shared with the Kover JVM agent
+sourceSets.main {
+    java.srcDir("src/shared/java")
+}
+
 dependencies {
     compileOnly(libs.intellij.offline)
     fatJar(libs.intellij.offline)
+
+    testImplementation(libs.intellij.offline)
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+// JUnit requires Java 8, the runtime itself remains compatible with Java 7
+tasks.compileTestJava {
+    sourceCompatibility = JavaVersion.VERSION_1_8.toString()
+    targetCompatibility = JavaVersion.VERSION_1_8.toString()
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
 
 koverDocs {
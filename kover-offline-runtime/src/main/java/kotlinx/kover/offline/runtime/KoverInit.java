@@ -3,11 +3,19 @@ package kotlinx.kover.offline.runtime;
 import com.intellij.rt.coverage.offline.api.CoverageRuntime;
 import com.intellij.rt.coverage.util.ErrorReporter;
 import kotlinx.kover.offline.runtime.api.KoverRuntime;
+import kotlinx.kover.shared.ShardFiles;
 
 import java.io.File;
 
+import static kotlinx.kover.offline.runtime.api.KoverRuntime.ENDPOINT_PORT_PROPERTY_NAME;
+import static kotlinx.kover.offline.runtime.api.KoverRuntime.ENDPOINT_TOKEN_PROPERTY_NAME;
 import static kotlinx.kover.offline.runtime.api.KoverRuntime.LOG_FILE_PROPERTY_NAME;
+import static kotlinx.kover.offline.runtime.api.KoverRuntime.MBEAN_OBJECT_NAME;
+import static kotlinx.kover.offline.runtime.api.KoverRuntime.MBEAN_PROPERTY_NAME;
+import static kotlinx.kover.offline.runtime.api.KoverRuntime.REPORT_COMPRESSION_PROPERTY_NAME;
+import static kotlinx.kover.offline.runtime.api.KoverRuntime.REPORT_INTERVAL_PROPERTY_NAME;
 import static kotlinx.kover.offline.runtime.api.KoverRuntime.REPORT_PROPERTY_NAME;
+import static kotlinx.kover.offline.runtime.api.KoverRuntime.REPORT_SHARDS_PROPERTY_NAME;
 
 /**
  * Class for initializing the Kover offline instrumentation runtime.
@@ -16,6 +24,16 @@ import static kotlinx.kover.offline.runtime.api.KoverRuntime.REPORT_PROPERTY_NAM
  * Therefore, all initialization code must be placed in the {@code <clinit>} method.
  */
 class KoverInit {
+    /**
+     * Lock to prevent concurrent saves of the report.
+     */
+    private static final Object SAVE_LOCK = new Object();
+
+    /**
+     * Flag that the final report has been saved on JVM shutdown, after that periodic saving is stopped.
+     * Guarded by {@link #SAVE_LOCK}.
+     */
+    private static boolean savedOnExit = false;
 
     static {
         String logFileProp = System.getProperty(LOG_FILE_PROPERTY_NAME);
@@ -30,25 +48,119 @@ class KoverInit {
         // setting the logging level in the "standard" error output stream
         CoverageRuntime.setLogLevel(ErrorReporter.WARNING);
 
+        if (Boolean.parseBoolean(System.getProperty(MBEAN_PROPERTY_NAME))) {
+            registerMBean();
+        }
+
+        String endpointPortProp = System.getProperty(ENDPOINT_PORT_PROPERTY_NAME);
+        if (endpointPortProp != null) {
+            startEndpoint(endpointPortProp, System.getProperty(ENDPOINT_TOKEN_PROPERTY_NAME));
+        }
+
         String reportNameSavedOnExitProp = System.getProperty(REPORT_PROPERTY_NAME);
         if (reportNameSavedOnExitProp != null) {
+            if (Boolean.parseBoolean(System.getProperty(REPORT_SHARDS_PROPERTY_NAME))) {
+                // each process writes its own file, so processes with the same property value do not overwrite each other's reports
+                reportNameSavedOnExitProp = ShardFiles.shardPath(reportNameSavedOnExitProp);
+            }
+
+            boolean compressed = Boolean.parseBoolean(System.getProperty(REPORT_COMPRESSION_PROPERTY_NAME));
+
             // if a parameter is passed, then use the shutdown hook to save the binary report to a file
-            saveOnExit(reportNameSavedOnExitProp);
+            saveOnExit(reportNameSavedOnExitProp, compressed);
+
+            String intervalProp = System.getProperty(REPORT_INTERVAL_PROPERTY_NAME);
+            if (intervalProp != null) {
+                savePeriodically(reportNameSavedOnExitProp, compressed, intervalProp);
+            }
+        }
+    }
+
+    private static void registerMBean() {
+        try {
+            KoverRuntime.registerMBean();
+        } catch (Throwable e) {
+            System.err.println("Kover error: failed to register MBean '" + MBEAN_OBJECT_NAME + "': " + e.getMessage());
+        }
+    }
+
+    private static void startEndpoint(String portProp, String tokenPathProp) {
+        if (tokenPathProp == null) {
+            System.err.println("Kover error: coverage endpoint is not opened, '" + ENDPOINT_TOKEN_PROPERTY_NAME + "' property is required to restrict access to it");
+            return;
+        }
+
+        final int port;
+        try {
+            port = Integer.parseInt(portProp.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Kover error: invalid value of '" + ENDPOINT_PORT_PROPERTY_NAME + "' property, expected port number, actual '" + portProp + "'");
+            return;
+        }
+
+        try {
+            KoverRuntime.startEndpoint(port, new File(tokenPathProp));
+        } catch (Throwable e) {
+            System.err.println("Kover error: failed to open coverage endpoint on port " + port + ": " + e.getMessage());
         }
     }
 
-    private static void saveOnExit(final String fileName) {
+    private static void saveOnExit(final String fileName, final boolean compressed) {
         Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
             public void run() {
-                try {
-                    KoverRuntime.saveReport(new File(fileName));
-                } catch (Throwable e) {
-                    System.err.println("Kover error: failed to save report file '" + fileName +"': " + e.getMessage());
+                synchronized (SAVE_LOCK) {
+                    savedOnExit = true;
+                    save(fileName, compressed);
                 }
             }
         }));
     }
 
+    private static void savePeriodically(final String fileName, final boolean compressed, String intervalProp) {
+        final long intervalMillis;
+        try {
+            intervalMillis = Long.parseLong(intervalProp.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            System.err.println("Kover error: invalid value of '" + REPORT_INTERVAL_PROPERTY_NAME + "' property, expected number of seconds, actual '" + intervalProp + "'");
+            return;
+        }
+        if (intervalMillis <= 0) {
+            System.err.println("Kover error: value of '" + REPORT_INTERVAL_PROPERTY_NAME + "' property must be positive, actual '" + intervalProp + "'");
+            return;
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                while (true) {
+                    // the interval is counted from the end of the previous save, so saves never overlap and take a bounded share of CPU time
+                    try {
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    synchronized (SAVE_LOCK) {
+                        if (savedOnExit) {
+                            return;
+                        }
+                        save(fileName, compressed);
+                    }
+                }
+            }
+        }, "kover-report-saver");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private static void save(String fileName, boolean compressed) {
+        try {
+            KoverRuntime.saveReport(new File(fileName), compressed);
+        } catch (Throwable e) {
+            System.err.println("Kover error: failed to save report file '" + fileName +"': " + e.getMessage());
+        }
+    }
+
     private KoverInit() {
         // no instances
     }
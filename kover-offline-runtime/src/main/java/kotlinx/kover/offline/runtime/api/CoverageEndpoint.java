@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.offline.runtime.api;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * TCP endpoint on the loopback interface for getting coverage from a running process.
+ * <p>
+ * The client sends one line with the access token and the command separated by a space,
+ * and receives a status line.
+ * For {@code dump}, {@code delta} and {@code snapshot} commands, the status line is {@code OK <length>} with the length of the binary report in bytes,
+ * and it is followed by the binary report, so the client can detect a connection closed before the whole report is received.
+ * Supported commands:
+ * <ul>
+ *     <li>{@code dump} - binary report with all hits</li>
+ *     <li>{@code delta} - binary report with the hits since the previous delta report or reset, see {@link KoverRuntime#getDeltaReport()}</li>
+ *     <li>{@code snapshot} - binary report with all hits, and reset of the coverage in the same step, see {@link KoverRuntime#snapshotAndReset()}</li>
+ *     <li>{@code reset} - reset the coverage, see {@link KoverRuntime#reset()}</li>
+ * </ul>
+ * For {@code reset} command the status line is {@code OK}, and the status line of a failed request is {@code ERROR <message>}.
+ * <p>
+ * Each connection is processed by its own low-priority daemon thread, so a client that does not read the response does not block other clients.
+ * The connection is closed if the request is not received or the response is not written within {@value #CONNECTION_TIMEOUT_MILLIS} milliseconds.
+ * <p>
+ * Any local user can connect to the loopback interface, so the access token is stored in a file readable only by the owner,
+ * and only the clients which can read this file are able to get the coverage.
+ */
+final class CoverageEndpoint {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final int MAX_REQUEST_LENGTH = 256;
+
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    private static final int CONNECTION_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * Timer which closes the connections not processed within {@link #CONNECTION_TIMEOUT_MILLIS},
+     * writing to a socket has no timeout, so this is the only way to stop writing to a client that does not read.
+     */
+    private static final Timer DEADLINES = new Timer("kover-coverage-endpoint-deadlines", true);
+
+    private CoverageEndpoint() {
+        // no instances
+    }
+
+    /**
+     * Open the endpoint on the {@code port} of the loopback interface, {@code 0} means any free port.
+     *
+     * @return the port on which the endpoint is opened
+     */
+    static int start(int port, File tokenFile) throws IOException {
+        final byte[] token = loadOrCreateToken(tokenFile).getBytes(ASCII);
+        final ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                while (true) {
+                    final Socket socket;
+                    try {
+                        socket = serverSocket.accept();
+                    } catch (IOException e) {
+                        System.err.println("Kover error: coverage endpoint is stopped: " + e.getMessage());
+                        return;
+                    }
+                    Thread handler = new Thread(new Runnable() {
+                        public void run() {
+                            handle(socket, token);
+                        }
+                    }, "kover-coverage-endpoint-connection");
+                    handler.setDaemon(true);
+                    handler.setPriority(Thread.MIN_PRIORITY);
+                    handler.start();
+                }
+            }
+        }, "kover-coverage-endpoint");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+
+        return serverSocket.getLocalPort();
+    }
+
+    private static void handle(final Socket socket, byte[] token) {
+        TimerTask deadline = new TimerTask() {
+            public void run() {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // the connection is closed anyway
+                }
+            }
+        };
+        DEADLINES.schedule(deadline, CONNECTION_TIMEOUT_MILLIS);
+
+        try (Socket closeable = socket) {
+            closeable.setSoTimeout(READ_TIMEOUT_MILLIS);
+            String request = readRequest(closeable.getInputStream());
+            OutputStream output = new BufferedOutputStream(closeable.getOutputStream());
+
+            int separatorIndex = request.indexOf(' ');
+            String requestToken = separatorIndex < 0 ? "" : request.substring(0, separatorIndex);
+            String command = separatorIndex < 0 ? request : request.substring(separatorIndex + 1).trim();
+
+            if (!MessageDigest.isEqual(token, requestToken.getBytes(ASCII))) {
+                writeStatus(output, "ERROR invalid access token");
+            } else if ("dump".equals(command)) {
+                writeReport(output, KoverRuntime.getReport());
+            } else if ("delta".equals(command)) {
+                writeReport(output, KoverRuntime.getDeltaReport());
+            } else if ("snapshot".equals(command)) {
+                writeReport(output, KoverRuntime.snapshotAndReset());
+            } else if ("reset".equals(command)) {
+                KoverRuntime.reset();
+                writeStatus(output, "OK");
+            } else {
+                writeStatus(output, "ERROR unknown command '" + command + "', expected one of: dump, delta, snapshot, reset");
+            }
+            output.flush();
+        } catch (Throwable e) {
+            System.err.println("Kover error: failed to process request to coverage endpoint: " + e.getMessage());
+        } finally {
+            deadline.cancel();
+        }
+    }
+
+    /**
+     * Write the report prefixed with its length, the report is taken in memory first, so the length is known in advance.
+     */
+    private static void writeReport(OutputStream output, byte[] report) throws IOException {
+        writeStatus(output, "OK " + report.length);
+        output.write(report);
+    }
+
+    /**
+     * Read the token from the file, or generate a new random token and save it to the file if it does not exist.
+     * <p>
+     * The new file is readable and writable only by the owner.
+     */
+    private static String loadOrCreateToken(File tokenFile) throws IOException {
+        if (tokenFile.exists()) {
+            return readToken(tokenFile);
+        }
+
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        StringBuilder builder = new StringBuilder();
+        for (byte b : random) {
+            builder.append(String.format("%02x", b & 0xFF));
+        }
+        String token = builder.toString();
+
+        File directory = tokenFile.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        try {
+            Files.createFile(tokenFile.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (FileAlreadyExistsException e) {
+            // the file was created concurrently by another process with the same property value
+            return readToken(tokenFile);
+        } catch (UnsupportedOperationException e) {
+            // POSIX permissions are not supported, e.g. on Windows
+            if (!tokenFile.createNewFile()) {
+                return readToken(tokenFile);
+            }
+            tokenFile.setReadable(false, false);
+            tokenFile.setReadable(true, true);
+            tokenFile.setWritable(false, false);
+            tokenFile.setWritable(true, true);
+        }
+
+        try (OutputStream output = new FileOutputStream(tokenFile)) {
+            output.write(token.getBytes(ASCII));
+        }
+        return token;
+    }
+
+    private static String readToken(File tokenFile) throws IOException {
+        String token = new String(Files.readAllBytes(tokenFile.toPath()), ASCII).trim();
+        if (token.isEmpty() || token.indexOf(' ') >= 0) {
+            throw new IOException("Invalid access token in the file '" + tokenFile + "', expected a non-empty string without spaces");
+        }
+        return token;
+    }
+
+    private static String readRequest(InputStream input) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < MAX_REQUEST_LENGTH) {
+            int b = input.read();
+            if (b < 0 || b == '\n') {
+                break;
+            }
+            builder.append((char) b);
+        }
+        return builder.toString().trim();
+    }
+
+    private static void writeStatus(OutputStream output, String status) throws IOException {
+        output.write((status + "\n").getBytes(ASCII));
+    }
+}
@@ -4,11 +4,21 @@
 
 package kotlinx.kover.offline.runtime.api;
 
+import com.intellij.rt.coverage.offline.RawHitsReport;
+import com.intellij.rt.coverage.offline.RawProjectData;
 import com.intellij.rt.coverage.offline.api.CoverageRuntime;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -26,6 +36,69 @@ public class KoverRuntime {
      */
     public static final String REPORT_PROPERTY_NAME = "kover.offline.report.path";
 
+    /**
+     * JVM property name used to enable writing the offline report of each process to a separate file.
+     * <p>
+     * If the value of this property is {@code true}, the report specified by {@link #REPORT_PROPERTY_NAME} is saved to the file
+     * {@code <name>-<pid>-<random>.<extension>} in the same directory, so several processes with the same report path do not overwrite each other's reports.
+     * The shard files can be merged by the Kover CLI {@code merge} command with the {@code --shards} option.
+     */
+    public static final String REPORT_SHARDS_PROPERTY_NAME = "kover.offline.report.shards";
+
+    /**
+     * JVM property name used to enable compression of the offline report.
+     * <p>
+     * If the value of this property is {@code true}, the report specified by {@link #REPORT_PROPERTY_NAME} is saved in ic format compressed with GZIP.
+     * Compressed reports are recognized automatically by Kover CLI, Kover Gradle and Maven plugins, so they can be used instead of uncompressed ones.
+     */
+    public static final String REPORT_COMPRESSION_PROPERTY_NAME = "kover.offline.report.compressed";
+
+    /**
+     * JVM property name used to define the interval in seconds between periodic saves of the offline report.
+     * <p>
+     * If this property and {@link #REPORT_PROPERTY_NAME} are specified, then the binary coverage report is also saved
+     * at the specified interval by a low-priority background thread, in addition to saving at the end of the JVM process.
+     * This way, the coverage is not lost if the process is killed.
+     * <p>
+     * The report file is replaced atomically, so the file being read always contains a complete report.
+     */
+    public static final String REPORT_INTERVAL_PROPERTY_NAME = "kover.offline.report.interval";
+
+    /**
+     * JVM property name used to define the port of the TCP endpoint for getting coverage from a running process.
+     * <p>
+     * If this property and {@link #ENDPOINT_TOKEN_PROPERTY_NAME} are specified, the endpoint is opened on the loopback interface, so only clients on the same host can connect.
+     * The client sends the access token and one of the commands {@code dump}, {@code delta}, {@code snapshot} or {@code reset} separated by a space and terminated by a line feed,
+     * and receives the status line {@code OK <length>} followed by the binary report of the specified length in bytes for {@code dump}, {@code delta} and {@code snapshot},
+     * {@code OK} for {@code reset} or {@code ERROR <message>} if the request failed.
+     * <p>
+     * Kover CLI {@code dump} command can be used as a client.
+     */
+    public static final String ENDPOINT_PORT_PROPERTY_NAME = "kover.offline.endpoint.port";
+
+    /**
+     * JVM property name used to define the path to the file with the access token of the coverage endpoint,
+     * see {@link #ENDPOINT_PORT_PROPERTY_NAME}.
+     * <p>
+     * If the file does not exist, a random token is generated and saved to the file readable only by the owner,
+     * so only the users who can read this file are able to get the coverage or reset it.
+     * The endpoint is not opened without this property.
+     */
+    public static final String ENDPOINT_TOKEN_PROPERTY_NAME = "kover.offline.endpoint.token.path";
+
+    /**
+     * JVM property name used to enable the JMX management interface of Kover offline runtime.
+     * <p>
+     * If the value of this property is {@code true}, the {@link KoverRuntimeMXBean} is registered in the platform MBean server
+     * under the name {@link #MBEAN_OBJECT_NAME}, so the binary reports can be saved and the coverage can be reset from JConsole or other JMX clients.
+     */
+    public static final String MBEAN_PROPERTY_NAME = "kover.offline.mbean";
+
+    /**
+     * JMX object name of the {@link KoverRuntimeMXBean}.
+     */
+    public static final String MBEAN_OBJECT_NAME = "kotlinx.kover:type=KoverRuntime";
+
     /**
      * JVM property name used to define the path to the file with Kover offline logs.
      *
@@ -34,6 +107,8 @@ public class KoverRuntime {
      */
     public static final String LOG_FILE_PROPERTY_NAME = "kover.offline.log.file.path";
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     /**
      * Get classes coverage. For the correct collection of coverage, an analysis of the class-files is required.
      * <p>
@@ -65,6 +140,9 @@ public class KoverRuntime {
      * Save coverage binary report in file with ic format.
      * If the file does not exist, it will be created. If a file already exists, it will be overwritten.
      * <p>
+     * The report is written to a temporary file first, which then replaces the target file,
+     * so the target file always contains a complete report.
+     * <p>
      * Calling this method is allowed only after all tests are completed. If the method is called in parallel with the execution of the measured code, the coverage value is unpredictable.
      * </p>
      *
@@ -72,13 +150,33 @@ public class KoverRuntime {
      * @throws IOException in case of any error working with files
      */
     public static void saveReport(File file) throws IOException {
-        if (!file.exists()) {
-            file.getParentFile().mkdirs();
-            file.createNewFile();
-        }
+        saveReport(file, false);
+    }
 
-        try (BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(file)); DataOutputStream outputStream = new DataOutputStream(out)) {
-            CoverageRuntime.dumpIcReport(outputStream);
+    /**
+     * Save coverage binary report in file with ic format, optionally compressed with GZIP.
+     * If the file does not exist, it will be created. If a file already exists, it will be overwritten.
+     * <p>
+     * Compressed reports take several times less space, they are recognized automatically by Kover CLI, Kover Gradle and Maven plugins.
+     * <p>
+     * Calling this method is allowed only after all tests are completed. If the method is called in parallel with the execution of the measured code, the coverage value is unpredictable.
+     * </p>
+     *
+     * @param file the file to save binary report
+     * @param compressed {@code true} if the report should be compressed with GZIP
+     * @throws IOException in case of any error working with files
+     */
+    public static void saveReport(File file, boolean compressed) throws IOException {
+        File tempFile = createTempFileFor(file);
+        try {
+            OutputStream fileStream = new FileOutputStream(tempFile);
+            OutputStream out = compressed ? new GZIPOutputStream(fileStream, BUFFER_SIZE) : new BufferedOutputStream(fileStream, BUFFER_SIZE);
+            try (DataOutputStream outputStream = new DataOutputStream(out)) {
+                CoverageRuntime.dumpIcReport(outputStream);
+            }
+            replaceFile(tempFile, file);
+        } finally {
+            tempFile.delete();
         }
     }
 
@@ -100,6 +198,161 @@ public class KoverRuntime {
         return byteArrayStream.toByteArray();
     }
 
+    /**
+     * Write the coverage binary report with ic format to the stream, without copying the report in memory.
+     * The stream is flushed but not closed.
+     * <p>
+     * Calling this method is allowed only after all tests are completed. If the method is called in parallel with the execution of the measured code, the coverage value is unpredictable.
+     * </p>
+     *
+     * @param output the stream to write binary report to
+     * @throws IOException in case of any error writing to the stream
+     */
+    public static void writeReport(OutputStream output) throws IOException {
+        DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(output));
+        CoverageRuntime.dumpIcReport(outputStream);
+        outputStream.flush();
+    }
+
+    /**
+     * Save coverage binary report with the hits registered since the previous delta report or {@link #reset()} in file with ic format.
+     * If the file does not exist, it will be created. If a file already exists, it will be overwritten.
+     * <p>
+     * The report contains only the classes with new hits, and the number of hits registered since the previous delta report,
+     * so the next delta report contains only the code executed after this call.
+     * The full coverage is obtained by merging all delta reports, e.g. with the {@code merge} command of Kover CLI.
+     * <p>
+     * The hit counters are not changed, so reports obtained by {@link #saveReport(File)} or {@link #getReport()}
+     * contain all hits regardless of delta reports.
+     * The previous hits are kept in memory, so the memory used for hits is doubled after the first delta report.
+     * </p>
+     *
+     * @param file the file to save binary report
+     * @throws IOException in case of any error working with files
+     */
+    public static void saveDeltaReport(File file) throws IOException {
+        byte[] report = getDeltaReport();
+
+        File tempFile = createTempFileFor(file);
+        try {
+            try (FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+                outputStream.write(report);
+            }
+            replaceFile(tempFile, file);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Get content of the coverage binary report with ic format with the hits registered since the previous delta report or {@link #reset()}.
+     * <p>
+     * The report contains only the classes with new hits, and the number of hits registered since the previous delta report,
+     * so the next delta report contains only the code executed after this call.
+     * The full coverage is obtained by merging all delta reports, e.g. with the {@code merge} command of Kover CLI.
+     * <p>
+     * The hit counters are not changed, so reports obtained by {@link #saveReport(File)} or {@link #getReport()}
+     * contain all hits regardless of delta reports.
+     * The previous hits are kept in memory, so the memory used for hits is doubled after the first delta report.
+     * </p>
+     *
+     * @return byte array with binary report in ic format
+     * @throws IOException in case of any error serializing the report
+     */
+    public static byte[] getDeltaReport() throws IOException {
+        RawProjectData delta = RuntimeHits.takeDelta();
+
+        ByteArrayOutputStream byteArrayStream = new ByteArrayOutputStream();
+        try (DataOutputStream outputStream = new DataOutputStream(byteArrayStream)) {
+            RawHitsReport.dump(outputStream, delta);
+        }
+        return byteArrayStream.toByteArray();
+    }
+
+    /**
+     * Reset the coverage: clear the hit counters of all loaded classes, so all following reports contain only the code executed after this call.
+     * <p>
+     * It allows to measure coverage of individual scenarios in one running process, without restarting it.
+     * <p>
+     * The reset affects all reports, including full reports obtained by {@link #saveReport(File)} or {@link #getReport()},
+     * the reports saved periodically and the report saved at the end of the JVM process.
+     * The instrumented code increments the counters without synchronization, so a hit registered at the very moment of the reset of its counter can be lost.
+     * </p>
+     */
+    public static void reset() {
+        RuntimeHits.takeAndClear();
+    }
+
+    /**
+     * Get content of the coverage binary report with ic format with all hits registered since the previous reset, and reset the coverage in the same step.
+     * <p>
+     * Each hit is included either into the returned report or into the following reports, so consecutive calls produce coverage reports of consecutive time windows.
+     * The report contains only the classes with hits.
+     * The hits are copied in memory, and the report is written from the copy, so the measured code is not paused.
+     * The instrumented code increments the counters without synchronization, so a hit registered at the very moment of the reset of its counter can be lost.
+     * </p>
+     *
+     * @return byte array with binary report in ic format
+     * @throws IOException in case of any error serializing the report
+     */
+    public static byte[] snapshotAndReset() throws IOException {
+        RawProjectData snapshot = RuntimeHits.takeAndClear();
+
+        ByteArrayOutputStream byteArrayStream = new ByteArrayOutputStream();
+        try (DataOutputStream outputStream = new DataOutputStream(byteArrayStream)) {
+            RawHitsReport.dump(outputStream, snapshot);
+        }
+        return byteArrayStream.toByteArray();
+    }
+
+    /**
+     * Open the TCP endpoint for getting coverage from a running process on the loopback interface,
+     * see {@link #ENDPOINT_PORT_PROPERTY_NAME} for the protocol.
+     * <p>
+     * Calling this method is not required if the JVM properties {@link #ENDPOINT_PORT_PROPERTY_NAME} and {@link #ENDPOINT_TOKEN_PROPERTY_NAME} are specified.
+     *
+     * @param port the port to open the endpoint on, {@code 0} to use any free port
+     * @param tokenFile the file with the access token, if it does not exist, a random token is generated and saved to the file readable only by the owner
+     * @return the port on which the endpoint is opened
+     * @throws IOException in case of any error opening the endpoint or working with the token file
+     */
+    public static int startEndpoint(int port, File tokenFile) throws IOException {
+        return CoverageEndpoint.start(port, tokenFile);
+    }
+
+    /**
+     * Register {@link KoverRuntimeMXBean} in the platform MBean server under the name {@link #MBEAN_OBJECT_NAME}.
+     * <p>
+     * Calling this method is not required if the JVM property {@link #MBEAN_PROPERTY_NAME} is {@code true}.
+     * If the MBean is already registered, the method does nothing.
+     *
+     * @throws JMException in case of any error registering the MBean
+     */
+    public static synchronized void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(MBEAN_OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(new RuntimeMXBeanImpl(), name);
+        }
+    }
+
+    /**
+     * Create temporary file in the same directory as the target file, so it can be atomically moved to the target.
+     */
+    private static File createTempFileFor(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        return File.createTempFile("." + file.getName() + ".", ".tmp", directory);
+    }
+
+    private static void replaceFile(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     private static List<ClassCoverage> convertClasses(List<com.intellij.rt.coverage.offline.api.ClassCoverage> origins) {
         ArrayList<ClassCoverage> result = new ArrayList<>(origins.size());
         for (com.intellij.rt.coverage.offline.api.ClassCoverage classCoverage : origins) {
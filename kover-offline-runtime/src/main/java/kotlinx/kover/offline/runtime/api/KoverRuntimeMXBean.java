@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.offline.runtime.api;
+
+import java.io.IOException;
+
+/**
+ * Management interface of Kover offline runtime, available via JMX under the name {@link KoverRuntime#MBEAN_OBJECT_NAME}.
+ * <p>
+ * It allows to save binary reports and reset the coverage of a running process from JConsole or other JMX clients,
+ * without calling {@link KoverRuntime} from the application code.
+ * <p>
+ * The MBean is registered if the JVM property {@link KoverRuntime#MBEAN_PROPERTY_NAME} is {@code true},
+ * or after calling {@link KoverRuntime#registerMBean()}.
+ */
+public interface KoverRuntimeMXBean {
+    /**
+     * Save coverage binary report in file with ic format, see {@link KoverRuntime#saveReport(java.io.File)}.
+     *
+     * @param path the path of the file to save binary report
+     * @throws IOException in case of any error working with files
+     */
+    void dump(String path) throws IOException;
+
+    /**
+     * Save coverage binary report with the hits registered since the previous delta report or reset,
+     * see {@link KoverRuntime#saveDeltaReport(java.io.File)}.
+     * <p>
+     * The hit counters are not changed, so the reports saved by {@link #dump(String)} contain all hits since the previous reset.
+     *
+     * @param path the path of the file to save binary report
+     * @throws IOException in case of any error working with files
+     */
+    void dumpDelta(String path) throws IOException;
+
+    /**
+     * Reset the coverage by clearing the hit counters, so all following reports contain only the code executed after this call,
+     * see {@link KoverRuntime#reset()}.
+     */
+    void reset();
+
+    /**
+     * Get the number of instrumented classes loaded in the JVM.
+     *
+     * @return the number of loaded instrumented classes
+     */
+    int getLoadedClassCount();
+
+    /**
+     * Get the total number of probes in the loaded instrumented classes.
+     *
+     * @return the number of probes
+     */
+    long getProbeCount();
+
+    /**
+     * Get the number of probes executed at least once since the start of the process or the previous reset.
+     *
+     * @return the number of hit probes
+     */
+    long getHitProbeCount();
+
+    /**
+     * Get the size of the arrays with the hits of the loaded instrumented classes.
+     *
+     * @return the size of the hit data in bytes
+     */
+    long getHitDataBytes();
+}
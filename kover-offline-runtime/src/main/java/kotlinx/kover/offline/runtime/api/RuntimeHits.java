@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.offline.runtime.api;
+
+import com.intellij.rt.coverage.offline.RawClassData;
+import com.intellij.rt.coverage.offline.RawProjectData;
+import com.intellij.rt.coverage.offline.RawProjectInit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Access to the hit counters of the instrumented classes loaded in the current JVM.
+ */
+final class RuntimeHits {
+    /**
+     * Copies of the hit arrays taken by the previous delta, by class name.
+     * Classes loaded after that or cleared by a reset have no copy, so all their hits are included into the next delta.
+     */
+    private static final Map<String, Object> BASELINE = new HashMap<>();
+
+    private RuntimeHits() {
+        // no instances
+    }
+
+    /**
+     * Get the hits registered since the previous delta or clearing, the hit counters themselves are not changed.
+     * <p>
+     * The hit array of each class is copied once, the difference with the previous copy is taken from it,
+     * and the copy becomes the baseline for the next delta, so hits registered concurrently are included into the next delta.
+     *
+     * @return the data with the classes that have new hits only
+     */
+    static synchronized RawProjectData takeDelta() {
+        RawProjectData delta = new RawProjectData();
+        for (RawClassData classData : classes()) {
+            Object hits = classData.hits;
+            if (hits instanceof int[]) {
+                int[] current = ((int[]) hits).clone();
+                Object previous = BASELINE.put(classData.name, current);
+                int[] baseline = previous instanceof int[] && ((int[]) previous).length == current.length ? (int[]) previous : null;
+
+                int[] deltaHits = null;
+                for (int i = 0; i < current.length; i++) {
+                    int hit = baseline == null ? current[i] : current[i] - baseline[i];
+                    if (hit != 0) {
+                        if (deltaHits == null) {
+                            deltaHits = (int[]) delta.getOrCreateClass(classData.name, current.length, true).hits;
+                        }
+                        deltaHits[i] = hit;
+                    }
+                }
+            } else if (hits instanceof boolean[]) {
+                boolean[] current = ((boolean[]) hits).clone();
+                Object previous = BASELINE.put(classData.name, current);
+                boolean[] baseline = previous instanceof boolean[] && ((boolean[]) previous).length == current.length ? (boolean[]) previous : null;
+
+                boolean[] deltaHits = null;
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] && (baseline == null || !baseline[i])) {
+                        if (deltaHits == null) {
+                            deltaHits = (boolean[]) delta.getOrCreateClass(classData.name, current.length, false).hits;
+                        }
+                        deltaHits[i] = true;
+                    }
+                }
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Get all hits and clear the hit counters in one step, so each hit is included either into the result or into the following reports.
+     * <p>
+     * The hit array of each class is copied, and then only the copied hits are subtracted from the counters,
+     * so hits registered concurrently are kept for the following reports.
+     * The instrumented code increments the counters without synchronization,
+     * so a hit registered at the very moment of the subtraction of the same counter can be lost.
+     * <p>
+     * The counters are cleared, so the delta baseline is cleared as well.
+     *
+     * @return the data with the classes that have hits only
+     */
+    static synchronized RawProjectData takeAndClear() {
+        RawProjectData result = new RawProjectData();
+        for (RawClassData classData : classes()) {
+            Object hits = classData.hits;
+            if (hits instanceof int[]) {
+                int[] counters = (int[]) hits;
+                int[] current = counters.clone();
+
+                int[] resultHits = null;
+                for (int i = 0; i < current.length; i++) {
+                    int hit = current[i];
+                    if (hit != 0) {
+                        if (resultHits == null) {
+                            resultHits = (int[]) result.getOrCreateClass(classData.name, current.length, true).hits;
+                        }
+                        resultHits[i] = hit;
+                        counters[i] -= hit;
+                    }
+                }
+            } else if (hits instanceof boolean[]) {
+                boolean[] counters = (boolean[]) hits;
+
+                boolean[] resultHits = null;
+                for (int i = 0; i < counters.length; i++) {
+                    if (counters[i]) {
+                        if (resultHits == null) {
+                            resultHits = (boolean[]) result.getOrCreateClass(classData.name, counters.length, false).hits;
+                        }
+                        resultHits[i] = true;
+                        counters[i] = false;
+                    }
+                }
+            }
+        }
+        BASELINE.clear();
+        return result;
+    }
+
+    /**
+     * Get the number of loaded instrumented classes.
+     */
+    static int classCount() {
+        return classes().size();
+    }
+
+    /**
+     * Get the total number of hit counters of all loaded classes.
+     */
+    static long probeCount() {
+        long count = 0;
+        for (RawClassData classData : classes()) {
+            Object hits = classData.hits;
+            if (hits instanceof int[]) {
+                count += ((int[]) hits).length;
+            } else if (hits instanceof boolean[]) {
+                count += ((boolean[]) hits).length;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of non-zero hit counters of all loaded classes.
+     */
+    static long hitProbeCount() {
+        long count = 0;
+        for (RawClassData classData : classes()) {
+            Object hits = classData.hits;
+            if (hits instanceof int[]) {
+                for (int hit : (int[]) hits) {
+                    if (hit != 0) count++;
+                }
+            } else if (hits instanceof boolean[]) {
+                for (boolean hit : (boolean[]) hits) {
+                    if (hit) count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the size of the hit arrays of all loaded classes in bytes, excluding the array headers.
+     */
+    static long hitDataBytes() {
+        long bytes = 0;
+        for (RawClassData classData : classes()) {
+            Object hits = classData.hits;
+            if (hits instanceof int[]) {
+                bytes += ((int[]) hits).length * 4L;
+            } else if (hits instanceof boolean[]) {
+                bytes += ((boolean[]) hits).length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the loaded instrumented classes.
+     * <p>
+     * Classes are registered by the instrumented code while they are being iterated here,
+     * so the classes are copied first, and the copying is repeated if they were registered concurrently.
+     */
+    private static List<RawClassData> classes() {
+        Collection<RawClassData> classes = RawProjectInit.getProjectData().getClasses();
+        while (true) {
+            try {
+                return new ArrayList<>(classes);
+            } catch (ConcurrentModificationException e) {
+                // a class was registered during the copying
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.offline.runtime.api;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Implementation of {@link KoverRuntimeMXBean}.
+ */
+final class RuntimeMXBeanImpl implements KoverRuntimeMXBean {
+    public void dump(String path) throws IOException {
+        KoverRuntime.saveReport(new File(path));
+    }
+
+    public void dumpDelta(String path) throws IOException {
+        KoverRuntime.saveDeltaReport(new File(path));
+    }
+
+    public void reset() {
+        KoverRuntime.reset();
+    }
+
+    public int getLoadedClassCount() {
+        return RuntimeHits.classCount();
+    }
+
+    public long getProbeCount() {
+        return RuntimeHits.probeCount();
+    }
+
+    public long getHitProbeCount() {
+        return RuntimeHits.hitProbeCount();
+    }
+
+    public long getHitDataBytes() {
+        return RuntimeHits.hitDataBytes();
+    }
+}
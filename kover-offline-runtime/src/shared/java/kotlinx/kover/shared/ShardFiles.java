@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+package kotlinx.kover.shared;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Naming of the shard files of binary reports.
+ * <p>
+ * These sources are compiled into both the Kover offline runtime and the Kover JVM agent,
+ * so the shard files written by both have the same name format.
+ */
+public final class ShardFiles {
+    private ShardFiles() {
+        // no-op
+    }
+
+    /**
+     * Get the path of the shard file of the current process: {@code <name>-<pid>-<random>.<extension>} in the same directory as {@code path}.
+     * <p>
+     * A random part is added because processes in different containers may have the same PID.
+     * {@link ThreadLocalRandom} is used because {@code SecureRandom} may block at JVM startup until enough entropy is collected.
+     */
+    public static String shardPath(String path) {
+        File file = new File(path);
+        String name = file.getName();
+        int extensionIndex = name.lastIndexOf('.');
+        String baseName = extensionIndex > 0 ? name.substring(0, extensionIndex) : name;
+        String extension = extensionIndex > 0 ? name.substring(extensionIndex) : "";
+
+        String shardName = baseName + "-" + currentPid() + "-" + Integer.toHexString(ThreadLocalRandom.current().nextInt()) + extension;
+        return new File(file.getParentFile(), shardName).getPath();
+    }
+
+    /**
+     * Get the PID of the current process, {@code 0} if it is unknown.
+     */
+    private static String currentPid() {
+        try {
+            // the name has the format pid@hostname on most JVMs
+            String jvmName = ManagementFactory.getRuntimeMXBean().getName();
+            int separatorIndex = jvmName.indexOf('@');
+            if (separatorIndex > 0) {
+                return jvmName.substring(0, separatorIndex);
+            }
+        } catch (Throwable e) {
+            // management API is not available, e.g. on Android
+        }
+        return "0";
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017-2024 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license.
+ */
+
+package kotlinx.kover.offline.runtime.api;
+
+import com.intellij.rt.coverage.offline.RawClassData;
+import com.intellij.rt.coverage.offline.RawHitsReport;
+import com.intellij.rt.coverage.offline.RawProjectInit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Hits of instrumented classes are simulated by changing the arrays registered in the runtime,
+ * each test uses its own class names because the runtime is shared by all tests.
+ */
+class DeltaReportTest {
+    @Test
+    void fullReportContainsAllHitsAfterDelta(@TempDir File dir) throws IOException {
+        int[] hits = registerClass("delta.FullReport", 3);
+        hits[0] = 2;
+        KoverRuntime.saveDeltaReport(new File(dir, "delta.ic"));
+        hits[1] = 1;
+
+        File full = new File(dir, "full.ic");
+        KoverRuntime.saveReport(full);
+        assertArrayEquals(new int[]{2, 1, 0}, loadHits(full, "delta.FullReport"));
+
+        // the second full report is not affected by the first one
+        KoverRuntime.saveReport(full);
+        assertArrayEquals(new int[]{2, 1, 0}, loadHits(full, "delta.FullReport"));
+    }
+
+    @Test
+    void deltaContainsOnlyNewHits(@TempDir File dir) throws IOException {
+        int[] changed = registerClass("delta.Changed", 3);
+        int[] unchanged = registerClass("delta.Unchanged", 2);
+        changed[0] = 1;
+        unchanged[1] = 5;
+
+        File first = new File(dir, "delta-1.ic");
+        KoverRuntime.saveDeltaReport(first);
+        assertArrayEquals(new int[]{1, 0, 0}, loadHits(first, "delta.Changed"));
+        assertArrayEquals(new int[]{0, 5}, loadHits(first, "delta.Unchanged"));
+
+        changed[0] = 3;
+        changed[2] = 1;
+
+        File second = new File(dir, "delta-2.ic");
+        KoverRuntime.saveDeltaReport(second);
+        assertArrayEquals(new int[]{2, 0, 1}, loadHits(second, "delta.Changed"));
+        assertNull(loadHits(second, "delta.Unchanged"));
+
+        File third = new File(dir, "delta-3.ic");
+        KoverRuntime.saveDeltaReport(third);
+        assertNull(loadHits(third, "delta.Changed"));
+    }
+
+    @Test
+    void resetClearsCounters(@TempDir File dir) throws IOException {
+        int[] hits = registerClass("delta.Reset", 2);
+        hits[0] = 4;
+        KoverRuntime.reset();
+        assertArrayEquals(new int[]{0, 0}, hits);
+        hits[1] = 1;
+
+        // full reports contain only the hits since the reset
+        File full = new File(dir, "full.ic");
+        KoverRuntime.saveReport(full);
+        assertArrayEquals(new int[]{0, 1}, loadHits(full, "delta.Reset"));
+
+        // the delta after the reset contains the hits since the reset
+        File delta = new File(dir, "delta.ic");
+        KoverRuntime.saveDeltaReport(delta);
+        assertArrayEquals(new int[]{0, 1}, loadHits(delta, "delta.Reset"));
+    }
+
+    @Test
+    void snapshotAndResetCapturesAndClears(@TempDir File dir) throws IOException {
+        int[] hits = registerClass("delta.Snapshot", 2);
+        hits[0] = 3;
+
+        File first = new File(dir, "snapshot-1.ic");
+        writeFile(first, KoverRuntime.snapshotAndReset());
+        assertArrayEquals(new int[]{3, 0}, loadHits(first, "delta.Snapshot"));
+        assertArrayEquals(new int[]{0, 0}, hits);
+
+        hits[1] = 2;
+        File second = new File(dir, "snapshot-2.ic");
+        writeFile(second, KoverRuntime.snapshotAndReset());
+        assertArrayEquals(new int[]{0, 2}, loadHits(second, "delta.Snapshot"));
+
+        // classes without hits are not included
+        File third = new File(dir, "snapshot-3.ic");
+        writeFile(third, KoverRuntime.snapshotAndReset());
+        assertNull(loadHits(third, "delta.Snapshot"));
+    }
+
+    private static void writeFile(File file, byte[] content) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(content);
+        }
+    }
+
+    private static int[] registerClass(String name, int length) {
+        return (int[]) RawProjectInit.getProjectData().getOrCreateClass(name, length, true).hits;
+    }
+
+    private static int[] loadHits(File report, String className) throws IOException {
+        for (RawClassData classData : RawHitsReport.load(report).getClasses()) {
+            if (classData.name.equals(className)) {
+                return (int[]) classData.hits;
+            }
+        }
+        return null;
+    }
+}